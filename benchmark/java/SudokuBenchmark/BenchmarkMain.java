@@ -0,0 +1,20 @@
+package SudokuBenchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Runs every benchmark in this module, or those matching the first argument, with the
+// GC profiler enabled so that allocation rates are reported alongside timings.
+public class BenchmarkMain
+{
+	public static void main (String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+			.include(args.length > 0 ? args[0] : "SudokuBenchmark\\..*")
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,74 @@
+package SudokuBenchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import SudokuLogic.Board;
+import SudokuLogic.Difficulty;
+import SudokuLogic.GridFormat;
+import SudokuLogic.PackedGrid;
+
+// Measures writing and reading a board in the line, binary and pretty-printed formats.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatBenchmark
+{
+	private Board board;
+	private PackedGrid grid;		// Scratch grid read into.
+	private StringBuilder line;		// Scratch line written into.
+	private String parsedLine;		// Line of the board to read back.
+	private ByteBuffer buffer;		// Scratch buffer for the binary format.
+
+	@Setup
+	public void setUp () {
+		board = new Board(Difficulty.MEDIUM, new Random(42));
+		grid = new PackedGrid();
+		line = new StringBuilder(GridFormat.LINE_LENGTH);
+		parsedLine = board.toLineString();
+		buffer = ByteBuffer.allocate(GridFormat.BINARY_LENGTH);
+	}
+
+	@Benchmark
+	public StringBuilder writeLine () throws IOException {
+		line.setLength(0);
+		GridFormat.writeLine(board.getGrid(), line);
+		return line;
+	}
+
+	@Benchmark
+	public PackedGrid readLine () {
+		GridFormat.readLine(parsedLine, 0, grid);
+		return grid;
+	}
+
+	@Benchmark
+	public PackedGrid writeAndReadBinary () {
+		buffer.clear();
+		GridFormat.writeBinary(board.getGrid(), buffer);
+		buffer.flip();
+		GridFormat.readBinary(buffer, grid);
+		return grid;
+	}
+
+	@Benchmark
+	public String toPrettyString () {
+		return board.toString();
+	}
+}
@@ -0,0 +1,44 @@
+package SudokuBenchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import SudokuLogic.Board;
+import SudokuLogic.Difficulty;
+
+// Measures building a complete puzzle, from seed grid to unique hidden cells, per difficulty.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerationBenchmark
+{
+	@Param({"EASY", "MEDIUM", "HARD"})
+	public Difficulty difficulty;
+
+	private Random random;
+
+	@Setup
+	public void setUp () {
+		random = new Random(42);
+	}
+
+	@Benchmark
+	public Board generate () {
+		return new Board(difficulty, random);
+	}
+}
@@ -0,0 +1,82 @@
+package SudokuBenchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import SudokuLogic.Difficulty;
+import SudokuLogic.Geometry;
+import SudokuLogic.GridGenerator;
+import SudokuLogic.GridSolver;
+import SudokuLogic.ParallelSolver;
+
+// Measures generating and solving puzzles on every grid size from 4 by 4 to 25 by 25, solving
+// both on one thread and split across the common ForkJoinPool.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GridBenchmark
+{
+	private static final int PUZZLES = 16;
+
+	@Param({"2", "3", "4", "5"})
+	public int boxSize;
+
+	@Param({"EASY", "MEDIUM", "HARD"})
+	public Difficulty difficulty;
+
+	private GridGenerator generator;
+	private GridSolver solver;
+	private ParallelSolver parallelSolver;
+	private int[] grid;			// Scratch grid generated or solved in place.
+	private int[][] puzzles;	// Original cells of each puzzle.
+	private int next;
+
+	@Setup
+	public void setUp () {
+		Geometry geometry = Geometry.of(boxSize);
+		generator = new GridGenerator(geometry, new Random(42));
+		solver = new GridSolver(geometry);
+		parallelSolver = new ParallelSolver(geometry);
+		grid = new int[geometry.getCellCount()];
+		puzzles = new int[PUZZLES][geometry.getCellCount()];
+		for (int i = 0; i < PUZZLES; i++) {
+			generator.generateSolution(puzzles[i]);
+			generator.hideCells(puzzles[i], difficulty);
+		}
+	}
+
+	@Benchmark
+	public int generate () {
+		generator.generateSolution(grid);
+		return generator.hideCells(grid, difficulty);
+	}
+
+	@Benchmark
+	public boolean solve () {
+		int[] puzzle = puzzles[next++ & (PUZZLES - 1)];
+		System.arraycopy(puzzle, 0, grid, 0, puzzle.length);
+		return solver.solve(grid);
+	}
+
+	@Benchmark
+	public boolean solveParallel () {
+		int[] puzzle = puzzles[next++ & (PUZZLES - 1)];
+		System.arraycopy(puzzle, 0, grid, 0, puzzle.length);
+		return parallelSolver.solve(grid);
+	}
+}
@@ -0,0 +1,61 @@
+package SudokuBenchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import SudokuLogic.Board;
+import SudokuLogic.Difficulty;
+import SudokuLogic.Solver;
+
+// Measures solving and proving uniqueness over a fixed set of generated puzzles.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark
+{
+	private static final int PUZZLES = 256;
+
+	@Param({"EASY", "MEDIUM", "HARD"})
+	public Difficulty difficulty;
+
+	private Solver solver;
+	private int[][] puzzles;	// Original cells of each puzzle.
+	private int[] cells;		// Scratch grid solved in place.
+	private int next;
+
+	@Setup
+	public void setUp () {
+		Random random = new Random(42);
+		solver = new Solver();
+		puzzles = new int[PUZZLES][81];
+		cells = new int[81];
+		for (int i = 0; i < PUZZLES; i++)
+			new Board(difficulty, random).getPuzzle().toArray(puzzles[i]);
+	}
+
+	@Benchmark
+	public boolean solve () {
+		System.arraycopy(puzzles[next++ & (PUZZLES - 1)], 0, cells, 0, 81);
+		return solver.solve(cells);
+	}
+
+	@Benchmark
+	public int countSolutions () {
+		return solver.countSolutions(puzzles[next++ & (PUZZLES - 1)], 2);
+	}
+}
@@ -0,0 +1,87 @@
+package SudokuBenchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import SudokuLogic.Board;
+import SudokuLogic.Difficulty;
+import SudokuLogic.Game;
+
+// Measures completion checking and cell updates on a board one cell away from solved,
+// against the original scan of every row, column and sub-grid list.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark
+{
+	private Game game;
+	private Board board;
+	private int row, column, value;	// Last empty cell and its solution.
+	private int toggle;
+
+	@Setup
+	public void setUp () {
+		board = new Board(Difficulty.HARD, new Random(42));
+		game = new Game(board);
+
+		// Fill every cell but one with its solution.
+		for (int i = 0; i < 81; i++) {
+			if (!board.isOriginalCell(i / 9, i % 9)) {
+				row = i / 9;
+				column = i % 9;
+				value = board.getSolution().get(i);
+				board.setCell(row, column, value);
+			}
+		}
+		board.setCell(row, column, 0);
+	}
+
+	@Benchmark
+	public boolean isComplete () {
+		return game.isComplete();
+	}
+
+	@Benchmark
+	public boolean setCellAndCheck () {
+		toggle ^= value;
+		game.setCell(row, column, toggle);
+		return game.isComplete();
+	}
+
+	@Benchmark
+	public boolean listScan () {
+		boolean complete = true;
+		for (int i = 0; i < 9; i++) {
+			complete = complete && isCompleteList(board.getRow(i));
+			complete = complete && isCompleteList(board.getColumn(i));
+		}
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++)
+				complete = complete && isCompleteList(board.getSubGrid(i, j));
+		}
+		return complete;
+	}
+
+	// Determine if the given list contains digits 1 through 9.
+	private static boolean isCompleteList (ArrayList<Integer> list) {
+		boolean complete = true;
+		for (int i = 1; i <= 9; i++)
+			complete = complete && list.contains(i);
+		return complete;
+	}
+}
@@ -1,124 +1,212 @@
 package SudokuLogic;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.Random;
 
-public class Board 
+public class Board implements PlayableBoard
 {
-	private int[][] board;		// Active board manipulated by the player.
-    private int[][] original;	// Original board after shuffling and blanks.
-	private int[][] solution;	// Solution board the player is working towards.
+	public static final int STATE_LENGTH = (2 * PackedGrid.WORDS) + 2; // Longs in a saved state.
+
+	private PackedGrid board;		// Active board manipulated by the player.
+	private PackedGrid solution;	// Solution board the player is working towards.
+	private long givens0, givens1;	// Bitmask of the original cells, which the player cannot change.
+	private Constraints constraints;	// Digits placed in each row, column and sub-grid, built on demand.
+	private short[] notes;			// Pencil marks of each cell as a digit mask, created on first use.
 
 	// Constructor.
 	public Board (Difficulty d) {
-		// Begin with a valid Sudoku solution.
-		board = new int[][] {
-			{3, 2, 9, 6, 5, 7, 8, 4, 1},
-			{7, 4, 5, 8, 3, 1, 2, 9, 6},
-			{6, 1, 8, 2, 4, 9, 3, 7, 5},
-			{1, 9, 3, 4, 6, 8, 5, 2, 7},
-			{2, 7, 6, 1, 9, 5, 4, 8, 3},
-			{8, 5, 4, 3, 7, 2, 6, 1, 9},
-			{4, 3, 2, 7, 1, 6, 9, 5, 8},
-			{5, 8, 7, 9, 2, 3, 1, 6, 4},
-			{9, 6, 1, 5, 8, 4, 7, 3, 2}
-		};
-		shuffleCells(); // Shuffle the board to make it unique.
-
-		// Create copy of board for original values.
-		solution = new int[9][9];
-		for (int i = 0; i < 9; i++) {
-			for (int j = 0; j < 9; j++)
-				solution[i][j] = board[i][j];
+		this(d, new Random());
+	}
+
+	// Constructor generating the board keyed by a seed, which is the same on every run and
+	// platform as long as the generator is unchanged, so a seed can stand in for the board.
+	public Board (Difficulty d, long seed) {
+		this(d, new SeededRandom(seed));
+	}
+
+	// Constructor with a specific random number generator, which is reused for every step.
+	public Board (Difficulty d, Random random) {
+		long start = Metrics.start();
+		board = new PackedGrid();
+		solution = new PackedGrid();
+		generate(d, new Generator(random), random, new int[9][9], board, solution);
+
+		// Mark the remaining clues as original cells.
+		for (int i = 0; i < 81; i++) {
+			if (board.get(i) != 0)
+				setGiven(i, true);
+		}
+		Metrics.GENERATION.recordSince(start);
+	}
+
+	// Generate a puzzle and its solution into packed grids without building a board, using a
+	// scratch grid and a generator drawing from the same random number generator.
+	static void generate (Difficulty d, Generator generator, Random random, int[][] grid, PackedGrid puzzle, PackedGrid solution) {
+		// Begin with a valid Sudoku solution completed by the solver from random seeds.
+		generator.generateSolution(grid);
+		shuffleCells(grid, random); // Shuffle the board to make it unique.
+		for (int i = 0; i < 81; i++)
+			solution.set(i, grid[i / 9][i % 9]);
+
+		generator.hideCells(grid, d); // Hide cells while keeping the solution unique.
+		for (int i = 0; i < 81; i++)
+			puzzle.set(i, grid[i / 9][i % 9]);
+	}
+
+	// Constructor for a puzzle with a known solution, whose non-empty cells become original.
+	public Board (PackedGrid puzzle, PackedGrid solution) {
+		board = new PackedGrid(puzzle);
+		this.solution = new PackedGrid(solution);
+		for (int i = 0; i < 81; i++) {
+			if (board.get(i) != 0)
+				setGiven(i, true);
 		}
+	}
+
+	// Constructor for a puzzle, such as one parsed by GridFormat, which is solved here.
+	public Board (PackedGrid puzzle) {
+		this(puzzle, solve(puzzle));
+	}
+
+	// Solve a puzzle, failing if it has no solution.
+	private static PackedGrid solve (PackedGrid puzzle) {
+		int[] cells = new int[81];
+		puzzle.toArray(cells);
+		if (!new Solver().solve(cells))
+			throw new IllegalArgumentException("The puzzle has no solution.");
+
+		PackedGrid solution = new PackedGrid();
+		for (int i = 0; i < 81; i++)
+			solution.set(i, cells[i]);
+		return solution;
+	}
+
+	// Constructor copying another board.
+	public Board (Board other) {
+		board = new PackedGrid(other.board);
+		solution = new PackedGrid(other.solution);
+		givens0 = other.givens0;
+		givens1 = other.givens1;
+		if (other.notes != null)
+			notes = other.notes.clone();
+	}
+
+	// Constructor restoring a board from the state returned by getState.
+	public Board (long[] state) {
+		long[] words = new long[PackedGrid.WORDS];
+		System.arraycopy(state, 0, words, 0, PackedGrid.WORDS);
+		board = new PackedGrid(words);
+		System.arraycopy(state, PackedGrid.WORDS, words, 0, PackedGrid.WORDS);
+		solution = new PackedGrid(words);
+		givens0 = state[2 * PackedGrid.WORDS];
+		givens1 = state[(2 * PackedGrid.WORDS) + 1];
+	}
 
-		hideCells(d); // Hide cells for presentation to the player.
+	// Get the board, solution and original cells packed into an array of longs.
+	public long[] getState () {
+		long[] state = new long[STATE_LENGTH];
+		System.arraycopy(board.getWords(), 0, state, 0, PackedGrid.WORDS);
+		System.arraycopy(solution.getWords(), 0, state, PackedGrid.WORDS, PackedGrid.WORDS);
+		state[2 * PackedGrid.WORDS] = givens0;
+		state[(2 * PackedGrid.WORDS) + 1] = givens1;
+		return state;
+	}
 
-		// Create copy of board for original values.
-		original = new int[9][9];
-        for (int i = 0; i < 9; i++) {
-            for (int j = 0; j < 9; j++)
-                original[i][j] = board[i][j];
-        }
+	// Mark or unmark a cell, by its index, as original.
+	private void setGiven (int cell, boolean given) {
+		if (cell < 64)
+			givens0 = given ? givens0 | (1L << cell) : givens0 & ~(1L << cell);
+		else
+			givens1 = given ? givens1 | (1L << (cell - 64)) : givens1 & ~(1L << (cell - 64));
 	}
 
-	// Swap rows of a Sudoku board.
-	private void swapRows (int i, int j) {
-		int[] temporary = board[i];
-		board[i] = board[j];
-		board[j] = temporary;
+	// Determine if a cell, by its index, is original.
+	private boolean isGiven (int cell) {
+		return cell < 64 ? (givens0 & (1L << cell)) != 0 : (givens1 & (1L << (cell - 64))) != 0;
 	}
 
-	// Swap columns of a Sudoku board.
-	private void swapColumns (int i, int j) {
+	// Swap rows of a Sudoku grid.
+	private static void swapRows (int[][] grid, int i, int j) {
+		int[] temporary = grid[i];
+		grid[i] = grid[j];
+		grid[j] = temporary;
+	}
+
+	// Swap columns of a Sudoku grid.
+	private static void swapColumns (int[][] grid, int i, int j) {
 		int temporary;
 		for (int k = 0; k < 9; k++) {
-			temporary = board[k][i];
-			board[k][i] = board[k][j];
-			board[k][j] = temporary;
+			temporary = grid[k][i];
+			grid[k][i] = grid[k][j];
+			grid[k][j] = temporary;
 		}
 	}
 
-	// Shuffle the rows and columns to generate a unique Sudoku board.
-	private void shuffleCells () {
-		ArrayList<Integer> indices = new ArrayList<Integer>(Arrays.asList(0, 1, 2));
-		
-		for (int i = 0; i < 3; i++) {
-			Collections.shuffle(indices);
-			swapRows(indices.get(0).intValue() + (i * 3), indices.get(1).intValue() + (i * 3));
+	// Swap bands of three rows of a Sudoku grid.
+	private static void swapBands (int[][] grid, int i, int j) {
+		for (int k = 0; k < 3; k++)
+			swapRows(grid, (i * 3) + k, (j * 3) + k);
+	}
+
+	// Swap stacks of three columns of a Sudoku grid.
+	private static void swapStacks (int[][] grid, int i, int j) {
+		for (int k = 0; k < 3; k++)
+			swapColumns(grid, (i * 3) + k, (j * 3) + k);
+	}
+
+	// Reflect a Sudoku grid across its main diagonal.
+	private static void transpose (int[][] grid) {
+		int temporary;
+		for (int i = 0; i < 9; i++) {
+			for (int j = i + 1; j < 9; j++) {
+				temporary = grid[i][j];
+				grid[i][j] = grid[j][i];
+				grid[j][i] = temporary;
+			}
 		}
-		
-		for (int i = 0; i < 3; i++) {
-			Collections.shuffle(indices);
-			swapColumns(indices.get(0).intValue() + (i * 3), indices.get(1).intValue() + (i * 3));
-		}
-	}
-
-	// Hide a random number of cells, depending on the difficulty.
-	private void hideCells (Difficulty d) {
-		ArrayList<Integer> spaces;
-		switch (d) {
-			case EASY:   spaces = new ArrayList<Integer>(Arrays.asList(2,3,4));
-				break; 
-			case MEDIUM: spaces = new ArrayList<Integer>(Arrays.asList(3,4,5));
-				break; 
-			case HARD: 	 spaces = new ArrayList<Integer>(Arrays.asList(4,5,6));
-				break;
-			default: 	 spaces = new ArrayList<Integer>(Arrays.asList(3,4,5));
-				break; 
-		}
-		
-		ArrayList<Integer> indices;
+	}
+
+	// Replace every digit of a Sudoku grid by a random permutation of the digits.
+	private static void relabel (int[][] grid, Random random) {
+		int[] labels = new int[10];
+		for (int i = 1; i <= 9; i++)
+			labels[i] = i;
+		for (int i = 9; i > 1; i--) {
+			int j = random.nextInt(i) + 1;
+			int temporary = labels[i];
+			labels[i] = labels[j];
+			labels[j] = temporary;
+		}
+
 		for (int i = 0; i < 9; i++) {
-			Collections.shuffle(spaces);
-			indices = generateHideIndices(spaces.get(1));
-			for (int j : indices)
-				board[i][j] = 0;
-		}	
+			for (int j = 0; j < 9; j++)
+				grid[i][j] = labels[grid[i][j]];
+		}
 	}
 
-	// Generate the random positions for which to hide cells.
-	private ArrayList<Integer> generateHideIndices (int number) {
-		ArrayList<Integer> indices = new ArrayList<Integer>();
-		Random random = new Random();
-		
-		for (int i = 0; i < number; i++) {
-			int value;
-			do {
-				value = random.nextInt(9);
-			} while (indices.contains(value));
-			indices.add(value);
+	// Shuffle the grid with every transformation that preserves a valid Sudoku solution:
+	// rows within bands, bands, columns within stacks, stacks, transposition and digits.
+	private static void shuffleCells (int[][] grid, Random random) {
+		for (int i = 0; i < 3; i++) {
+			for (int k = 2; k > 0; k--) {
+				swapRows(grid, (i * 3) + k, (i * 3) + random.nextInt(k + 1));
+				swapColumns(grid, (i * 3) + k, (i * 3) + random.nextInt(k + 1));
+			}
 		}
-		return indices;
+		for (int k = 2; k > 0; k--) {
+			swapBands(grid, k, random.nextInt(k + 1));
+			swapStacks(grid, k, random.nextInt(k + 1));
+		}
+		if (random.nextBoolean())
+			transpose(grid);
+		relabel(grid, random);
 	}
 
 	// Get a specific row from the board.
 	public ArrayList<Integer> getRow (int row) {
 		ArrayList<Integer> list = new ArrayList<Integer>();
 		for (int i = 0; i < 9; i++)
-			list.add(board[row][i]);
+			list.add(board.get(row, i));
 		return list;
 	}
 
@@ -126,7 +214,7 @@ public class Board
 	public ArrayList<Integer> getColumn (int column) {
 		ArrayList<Integer> list = new ArrayList<Integer>();
 		for (int i = 0; i < 9; i++)
-			list.add(board[i][column]);
+			list.add(board.get(i, column));
 		return list;
 	}
 
@@ -135,81 +223,241 @@ public class Board
 		ArrayList<Integer> list = new ArrayList<Integer>();
 		for (int i = a * 3; i < (a * 3) + 3; i++) {
 			for (int j = b * 3; j < (b * 3) + 3; j++)
-				list.add(board[i][j]);
+				list.add(board.get(i, j));
 		}
 		return list;
 	}
 
-	// Set the value of a particular cell.
+	// Set the value of a particular cell, unless it is original.
 	public void setCell (int row, int column, int value) {
-		board[row][column] = value;
+		int cell = (row * 9) + column;
+		if (isGiven(cell))
+			return;
+		if (constraints != null)
+			constraints.update(row, column, board.get(cell), value);
+		board.set(cell, value);
+
+		// A placed digit can no longer be a pencil mark of the cell or of its peers.
+		if (value != 0 && notes != null) {
+			int bit = 1 << (value - 1);
+			notes[cell] = 0;
+			for (int peer : LogicalSolver.PEERS[cell])
+				notes[peer] &= ~bit;
+		}
+	}
+
+	// Get a mask over LogicalSolver.PEERS of a cell of the peers that have a digit as a pencil mark.
+	public int getPeerNotes (int row, int column, int digit) {
+		if (notes == null)
+			return 0;
+		int[] peers = LogicalSolver.PEERS[(row * 9) + column];
+		int bit = 1 << (digit - 1), mask = 0;
+		for (int i = 0; i < peers.length; i++) {
+			if ((notes[peers[i]] & bit) != 0)
+				mask |= 1 << i;
+		}
+		return mask;
+	}
+
+	// Put back the pencil marks that placing a digit in a cell cleared: the marks of the cell
+	// and the digit in each peer of a mask as returned by getPeerNotes.
+	public void restoreNotes (int row, int column, int digit, int cellNotes, int peerMask) {
+		int cell = (row * 9) + column;
+		if (notes == null)
+			notes = new short[81];
+		notes[cell] = (short) cellNotes;
+		int[] peers = LogicalSolver.PEERS[cell];
+		for (int i = 0; i < peers.length; i++) {
+			if ((peerMask & (1 << i)) != 0 && board.get(peers[i]) == 0)
+				notes[peers[i]] |= 1 << (digit - 1);
+		}
+	}
+
+	// Get the pencil marks of a particular cell as a digit mask.
+	public int getNotes (int row, int column) {
+		return notes == null ? 0 : notes[(row * 9) + column];
+	}
+
+	// Set the pencil marks of a particular cell as a digit mask, unless it is original.
+	public void setNotes (int row, int column, int mask) {
+		int cell = (row * 9) + column;
+		if (isGiven(cell))
+			return;
+		if (notes == null)
+			notes = new short[81];
+		notes[cell] = (short) (mask & Constraints.ALL_DIGITS);
+	}
+
+	// Add or remove a single pencil mark of a particular cell.
+	public void toggleNote (int row, int column, int digit) {
+		setNotes(row, column, getNotes(row, column) ^ (1 << (digit - 1)));
+	}
+
+	// Mark every empty cell with the digits not yet placed in its row, column or sub-grid.
+	public void fillNotes () {
+		Constraints c = getConstraints();
+		if (notes == null)
+			notes = new short[81];
+		for (int i = 0; i < 81; i++)
+			notes[i] = board.get(i) == 0 ? (short) c.getCandidates(i / 9, i % 9) : 0;
+	}
+
+	// Determine if any cell may have pencil marks.
+	public boolean hasNotes () {
+		return notes != null;
+	}
+
+	// Remove every pencil mark.
+	public void clearNotes () {
+		notes = null;
+	}
+
+	// Get a copy of the pencil marks of every cell, or null if there are none.
+	public short[] getNotesArray () {
+		return notes == null ? null : notes.clone();
+	}
+
+	// Set the pencil marks of every cell, or remove them all if given null.
+	public void setNotesArray (short[] values) {
+		notes = values == null ? null : values.clone();
 	}
 
 	// Get the value of a particular cell.
 	public int getCell (int row, int column) {
-		return board[row][column];
+		return board.get(row, column);
 	}
 
-	// Set the value of a particular cell in the original board.
+	// Get the value of a particular cell in the solution.
+	public int getSolutionCell (int row, int column) {
+		return solution.get((row * 9) + column);
+	}
+
+	// Determine if a particular cell holds a digit other than the one in the solution.
+	public boolean isWrong (int row, int column) {
+		int value = board.get((row * 9) + column);
+		return value != 0 && value != solution.get((row * 9) + column);
+	}
+
+	// Set the value of a particular cell in the original board, where zero unmarks it.
 	public void setOriginalCell (int row, int column, int value) {
-		original[row][column] = value;
+		int cell = (row * 9) + column;
+		setGiven(cell, false);
+		if (value != 0) {
+			setCell(row, column, value);
+			setGiven(cell, true);
+		}
 	}
 
 	// Get the value of a particular cell in the original board.
 	public int getOriginalCell (int row, int column) {
-		return original[row][column];
+		int cell = (row * 9) + column;
+		return isGiven(cell) ? board.get(cell) : 0;
 	}
 
-	// Get the two-dimensional array of integers used in the board.
+	// Get a copy of the board as a two-dimensional array of integers.
 	public int[][] getBoardArray () {
-		return board;
+		int[][] values = new int[9][9];
+		board.toArray(values);
+		return values;
 	}
 
-	// Get the two-dimensional array of integers used in the original board.
+	// Get a copy of the original board as a two-dimensional array of integers.
 	public int[][] getOriginalBoardArray () {
-		return original;
+		int[][] values = new int[9][9];
+		for (int i = 0; i < 9; i++) {
+			for (int j = 0; j < 9; j++)
+				values[i][j] = getOriginalCell(i, j);
+		}
+		return values;
+	}
+
+	// Get the packed cells of the board.
+	public PackedGrid getGrid () {
+		return board;
+	}
+
+	// Get a packed copy of the original board, holding only the original cells.
+	public PackedGrid getPuzzle () {
+		PackedGrid puzzle = new PackedGrid();
+		for (int i = 0; i < 81; i++) {
+			if (isGiven(i))
+				puzzle.set(i, board.get(i));
+		}
+		return puzzle;
+	}
+
+	// Get the packed cells of the solution.
+	public PackedGrid getSolution () {
+		return solution;
+	}
+
+	// Get the row, column and sub-grid bookkeeping for the board, building it on first use.
+	public Constraints getConstraints () {
+		if (constraints == null) {
+			constraints = new Constraints();
+			constraints.reset(getBoardArray());
+		}
+		return constraints;
+	}
+
+	// Determine if every cell is filled without repeating a digit in any unit.
+	public boolean isComplete () {
+		long start = Metrics.start();
+		boolean complete = getConstraints().isComplete();
+		Metrics.VALIDATION.recordSince(start);
+		return complete;
+	}
+
+	// Determine if no digit is repeated in any row, column or sub-grid.
+	public boolean isValid () {
+		return getConstraints().isValid();
+	}
+
+	// Determine if the digit in a cell is repeated in its row, column or sub-grid.
+	public boolean isConflicting (int row, int column) {
+		return getConstraints().isConflicting(row, column);
+	}
+
+	// Set the receiver of changes to the conflicting cells, or null for none.
+	public void setConflictListener (ConflictListener listener) {
+		getConstraints().setConflictListener(listener);
 	}
 
 	// Determine if the cell at the particular row and column is original.
 	public boolean isOriginalCell (int row, int column) {
-		return original[row][column] != 0;
+		return isGiven((row * 9) + column);
+	}
+
+	// Get the geometry of the board, which is always the classic 9 by 9 grid.
+	public Geometry getGeometry () {
+		return Geometry.CLASSIC;
+	}
+
+	// Determine if another board has the same cells, solution and original cells.
+	public boolean equals (Object o) {
+		if (!(o instanceof Board))
+			return false;
+		Board other = (Board) o;
+		return givens0 == other.givens0 && givens1 == other.givens1
+			&& board.equals(other.board) && solution.equals(other.solution);
+	}
+
+	public int hashCode () {
+		return (31 * board.hashCode()) + (int) (givens0 ^ (givens0 >>> 32) ^ givens1);
 	}
 
 	// Return the Sudoku board solution as a string.
 	public String toSolutionString () {
-		String s = "";
+		return GridFormat.toPrettyString(solution);
+	}
 
-		for (int i = 0; i < 9; i++) {
-			for (int j = 0; j < 9; j++) {
-				if ((j + 1) % 3 == 0)
-					s += " " + solution[i][j] + " |";
-				else
-					s += " " + solution[i][j];
-			}
-			if ((i + 1) % 3 == 0)
-				s += "\n------------------------\n";
-			else
-				s += "\n";
-		}
-		return s;
+	// Return the Sudoku board as a line of 81 characters.
+	public String toLineString () {
+		return GridFormat.toLineString(board);
 	}
 
 	// Return the Sudoku board as a string.
 	public String toString () {
-		String s = "";
-		
-		for (int i = 0; i < 9; i++) {
-			for (int j = 0; j < 9; j++) {
-				if ((j + 1) % 3 == 0)
-					s += " " + board[i][j] + " |";
-				else
-					s += " " + board[i][j];
-			}
-			if ((i + 1) % 3 == 0)
-				s += "\n------------------------\n";
-			else
-				s += "\n";	
-		}
-		return s;
+		return GridFormat.toPrettyString(board);
 	}
 }
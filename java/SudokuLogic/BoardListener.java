@@ -0,0 +1,7 @@
+package SudokuLogic;
+
+// Receives a board generated in the background.
+public interface BoardListener {
+	// Called on the generating thread once the board is ready.
+	void onBoardReady (Board board);
+}
@@ -0,0 +1,149 @@
+package SudokuLogic;
+
+// Maps a 9 by 9 puzzle to the smallest representative of its class under the symmetries
+// that preserve Sudoku: transposition, permuting the bands and the rows within each band,
+// permuting the stacks and the columns within each stack, and relabeling the digits. Each
+// arrangement is read row by row with its digits relabeled in order of first appearance and
+// empty cells as zero, and the lexicographically smallest reading is the canonical form, so
+// two puzzles are equivalent exactly when their canonical forms are equal.
+// The search first finds the smallest possible first row, which every arrangement must
+// match to win, and then extends only the arrangements that match it one row at a time,
+// abandoning a choice of row as soon as its reading exceeds the best.
+// Instances reuse their scratch arrays and are not thread-safe; use one per thread.
+public class Canonicalizer
+{
+	// The six orders of three items.
+	private static final int[][] PERMUTATIONS = {
+		{0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}
+	};
+
+	// The 1296 orders of nine columns that keep stacks together.
+	private static final int[][] ORDERS = new int[1296][9];
+
+	static {
+		for (int i = 0; i < ORDERS.length; i++) {
+			int[] stacks = PERMUTATIONS[i / 216];
+			for (int stack = 0; stack < 3; stack++) {
+				int[] lines = PERMUTATIONS[(i / (stack == 0 ? 36 : stack == 1 ? 6 : 1)) % 6];
+				for (int j = 0; j < 3; j++)
+					ORDERS[i][(stack * 3) + j] = (stacks[stack] * 3) + lines[j];
+			}
+		}
+	}
+
+	private final int[][] grids;		// The puzzle and its transpose.
+	private final int[] best;			// Smallest reading found so far, with 10 for cells not yet read.
+	private final int[][] labels;		// Label given to each digit before reading each row.
+	private final int[] next;			// Next unused label before reading each row.
+	private final int[] row;			// Relabeled cells of the row being read.
+	private final PackedGrid scratch;	// Canonical form used for fingerprints.
+
+	// Constructor.
+	public Canonicalizer () {
+		grids = new int[2][81];
+		best = new int[81];
+		labels = new int[10][10];
+		next = new int[10];
+		row = new int[9];
+		scratch = new PackedGrid();
+	}
+
+	// Get the canonical form of a puzzle as a new grid.
+	public PackedGrid canonicalize (PackedGrid puzzle) {
+		PackedGrid canonical = new PackedGrid();
+		canonicalize(puzzle, canonical);
+		return canonical;
+	}
+
+	// Write the canonical form of a puzzle into another grid, which may be the same one.
+	public void canonicalize (PackedGrid puzzle, PackedGrid canonical) {
+		for (int i = 0; i < 81; i++) {
+			int value = puzzle.get(i);
+			grids[0][i] = value;
+			grids[1][((i % 9) * 9) + (i / 9)] = value;
+		}
+		for (int i = 0; i < 81; i++)
+			best[i] = 10;
+		next[0] = 1;
+
+		// Find the smallest first row over every transposition, first row and column order.
+		for (int[] grid : grids) {
+			for (int first = 0; first < 9; first++) {
+				for (int[] columns : ORDERS)
+					readRow(grid, columns, first, 0);
+			}
+		}
+
+		// Extend only the arrangements whose first row matches it.
+		for (int[] grid : grids) {
+			for (int first = 0; first < 9; first++) {
+				for (int[] columns : ORDERS) {
+					if (readRow(grid, columns, first, 0) == 0)
+						search(grid, columns, 1, 1 << first, first / 3);
+				}
+			}
+		}
+
+		for (int i = 0; i < 81; i++)
+			canonical.set(i, best[i]);
+	}
+
+	// Get the 64-bit fingerprint of the canonical form of a puzzle, equal for equivalent puzzles.
+	public long fingerprint (PackedGrid puzzle) {
+		canonicalize(puzzle, scratch);
+		return PuzzleIndex.fingerprint(scratch);
+	}
+
+	// Try each row that may come next, keeping the rows of a band together, and continue with
+	// those whose reading is no larger than the best.
+	private void search (int[] grid, int[] columns, int depth, int used, int band) {
+		if (depth == 9)
+			return;
+
+		for (int r = 0; r < 9; r++) {
+			if ((used & (1 << r)) != 0)
+				continue;
+			if (depth % 3 == 0 ? (used & (7 << ((r / 3) * 3))) != 0 : r / 3 != band)
+				continue;
+			if (readRow(grid, columns, r, depth) <= 0)
+				search(grid, columns, depth + 1, used | (1 << r), r / 3);
+		}
+	}
+
+	// Read a row of the grid as the row at a depth of the arrangement, relabeling its digits
+	// after those of the rows above. Return 1 if the reading is larger than the best, 0 if it
+	// is equal and -1 if it is smaller, in which case it becomes the best and the rows below
+	// are cleared to be read again.
+	private int readRow (int[] grid, int[] columns, int r, int depth) {
+		int[] before = labels[depth];
+		int[] after = labels[depth + 1];
+		System.arraycopy(before, 0, after, 0, 10);
+		int label = next[depth];
+		int base = r * 9;
+		int offset = depth * 9;
+		int result = 0;
+		for (int j = 0; j < 9; j++) {
+			int value = grid[base + columns[j]];
+			if (value != 0) {
+				if (after[value] == 0)
+					after[value] = label++;
+				value = after[value];
+			}
+			if (result == 0) {
+				if (value > best[offset + j])
+					return 1;
+				if (value < best[offset + j])
+					result = -1;
+			}
+			row[j] = value;
+		}
+		next[depth + 1] = label;
+
+		if (result < 0) {
+			System.arraycopy(row, 0, best, offset, 9);
+			for (int i = offset + 9; i < 81; i++)
+				best[i] = 10;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,7 @@
+package SudokuLogic;
+
+// Receives changes to the set of cells whose digit is repeated in a row, column or sub-grid.
+public interface ConflictListener {
+	// Called when a cell starts or stops conflicting with another cell.
+	void onConflictChanged (int row, int column, boolean conflicting);
+}
@@ -0,0 +1,266 @@
+package SudokuLogic;
+
+// Incremental bookkeeping of the digits placed in every unit of a rule set: the rows, columns
+// and sub-grids of the classic grid, or any variant's regions, diagonals and killer cages.
+// Digit d is represented by bit (d - 1), so a full unit of the classic grid has the mask
+// ALL_DIGITS. A cell is conflicting while its digit is repeated in any of its units, is not
+// allowed in the cell, or completes a cage with the wrong sum, and a listener is told
+// whenever a cell starts or stops conflicting.
+public class Constraints
+{
+	public static final int ALL_DIGITS = 0x1FF; // Mask containing digits 1 through 9.
+
+	private final RuleSet rules;			// Units of the grid and the digits allowed in each cell.
+	private final int size;					// Width and height of the grid.
+
+	private final int[] unitMasks;		// Digits present in each unit.
+	private final byte[] counts;		// Occurrences of each digit in each unit.
+	private final int[] unitSums;		// Sum of the digits in each unit.
+	private final int[] unitFilled;		// Number of non-empty cells in each unit.
+	private final int[] values;			// Digit of each cell, or zero if empty.
+	private final byte[] conflicts;		// Number of broken rules involving each cell's digit.
+	private int filled;					// Number of non-empty cells.
+	private int duplicates;				// Number of surplus digits across all units.
+	private int broken;					// Number of disallowed digits and full cages with a wrong sum.
+	private int conflicting;			// Number of conflicting cells.
+	private ConflictListener listener;	// Receiver of changes to the conflicting cells, if any.
+
+	// Constructor for the classic 9 by 9 grid.
+	public Constraints () {
+		this(RuleSet.standard(Geometry.CLASSIC));
+	}
+
+	// Constructor for the plain rules of a grid of the given geometry.
+	public Constraints (Geometry geometry) {
+		this(RuleSet.standard(geometry));
+	}
+
+	// Constructor for a grid following the given rules.
+	public Constraints (RuleSet rules) {
+		this.rules = rules;
+		size = rules.size;
+		int unitCount = rules.units.length;
+		unitMasks = new int[unitCount];
+		counts = new byte[unitCount * size];
+		unitSums = new int[unitCount];
+		unitFilled = new int[unitCount];
+		values = new int[rules.cellCount];
+		conflicts = new byte[rules.cellCount];
+	}
+
+	// Rebuild the bookkeeping from the given two-dimensional array of integers.
+	public void reset (int[][] grid) {
+		for (int i = 0; i < unitMasks.length; i++) {
+			unitMasks[i] = 0;
+			unitSums[i] = 0;
+			unitFilled[i] = 0;
+		}
+		for (int i = 0; i < counts.length; i++)
+			counts[i] = 0;
+		for (int i = 0; i < values.length; i++) {
+			values[i] = 0;
+			conflicts[i] = 0;
+		}
+		filled = 0;
+		duplicates = 0;
+		broken = 0;
+		conflicting = 0;
+
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				if (grid[i][j] != 0)
+					place((i * size) + j, grid[i][j]);
+			}
+		}
+	}
+
+	// Replace the digit in a cell, where zero denotes an empty cell.
+	public void update (int row, int column, int oldValue, int newValue) {
+		if (oldValue == newValue)
+			return;
+		int cell = (row * size) + column;
+		if (oldValue != 0)
+			remove(cell, oldValue);
+		if (newValue != 0)
+			place(cell, newValue);
+	}
+
+	// Record a digit placed in an empty cell.
+	private void place (int cell, int digit) {
+		int bit = 1 << (digit - 1);
+
+		values[cell] = digit;
+		if ((rules.cellMasks[cell] & bit) == 0) {
+			broken++;
+			markConflict(cell, 1);
+		}
+		for (int unit : rules.cellUnits[cell]) {
+			boolean wrong = isWrongSum(unit);
+			if (increment(unit, digit, cell))
+				unitMasks[unit] |= bit;
+			unitSums[unit] += digit;
+			unitFilled[unit]++;
+			checkSum(unit, wrong);
+		}
+		filled++;
+	}
+
+	// Record a digit removed from a cell.
+	private void remove (int cell, int digit) {
+		int bit = 1 << (digit - 1);
+
+		if ((rules.cellMasks[cell] & bit) == 0) {
+			broken--;
+			markConflict(cell, -1);
+		}
+		for (int unit : rules.cellUnits[cell]) {
+			boolean wrong = isWrongSum(unit);
+			if (decrement(unit, digit, cell))
+				unitMasks[unit] &= ~bit;
+			unitSums[unit] -= digit;
+			unitFilled[unit]--;
+			checkSum(unit, wrong);
+		}
+		values[cell] = 0;
+		filled--;
+	}
+
+	// Determine if a unit with a required sum is full but adds up to something else.
+	private boolean isWrongSum (int unit) {
+		return rules.sums[unit] != 0 && unitFilled[unit] == rules.units[unit].length
+			&& unitSums[unit] != rules.sums[unit];
+	}
+
+	// Mark or clear the conflicts of a unit's cells if its sum has just become wrong or right.
+	private void checkSum (int unit, boolean wasWrong) {
+		boolean wrong = isWrongSum(unit);
+		if (wrong == wasWrong)
+			return;
+		broken += wrong ? 1 : -1;
+		for (int cell : rules.units[unit])
+			markConflict(cell, wrong ? 1 : -1);
+	}
+
+	// Increment the count of a digit placed in a unit, returning true if it was absent before.
+	private boolean increment (int unit, int digit, int cell) {
+		int count = ++counts[(unit * size) + digit - 1];
+		if (count == 1)
+			return true;
+
+		// The first repeat also makes the cell already holding the digit conflicting.
+		duplicates++;
+		if (count == 2)
+			markOtherConflicts(unit, digit, cell, 1);
+		markConflict(cell, 1);
+		return false;
+	}
+
+	// Decrement the count of a digit removed from a unit, returning true if it is now absent.
+	private boolean decrement (int unit, int digit, int cell) {
+		int count = counts[(unit * size) + digit - 1]--;
+		if (count == 1)
+			return true;
+
+		// Removing the last repeat also clears the conflict of the cell left holding the digit.
+		duplicates--;
+		if (count == 2)
+			markOtherConflicts(unit, digit, cell, -1);
+		markConflict(cell, -1);
+		return false;
+	}
+
+	// Adjust the conflicts of the cells in a unit, other than the given one, holding the digit.
+	private void markOtherConflicts (int unit, int digit, int cell, int change) {
+		for (int other : rules.units[unit]) {
+			if (other != cell && values[other] == digit)
+				markConflict(other, change);
+		}
+	}
+
+	// Adjust the number of broken rules in which a cell takes part, notifying the listener
+	// when the cell starts or stops conflicting.
+	private void markConflict (int cell, int change) {
+		int before = conflicts[cell];
+		conflicts[cell] += change;
+		if (before == 0 || conflicts[cell] == 0) {
+			boolean conflict = conflicts[cell] != 0;
+			conflicting += conflict ? 1 : -1;
+			if (listener != null)
+				listener.onConflictChanged(cell / size, cell % size, conflict);
+		}
+	}
+
+	// Set the receiver of changes to the conflicting cells, or null for none.
+	public void setConflictListener (ConflictListener listener) {
+		this.listener = listener;
+	}
+
+	// Determine if the digit in a cell breaks any rule.
+	public boolean isConflicting (int row, int column) {
+		return conflicts[(row * size) + column] != 0;
+	}
+
+	// Get the number of cells whose digit breaks any rule.
+	public int getConflictingCount () {
+		return conflicting;
+	}
+
+	// Get the mask of digits present in a row.
+	public int getRowMask (int row) {
+		return unitMasks[row];
+	}
+
+	// Get the mask of digits present in a column.
+	public int getColumnMask (int column) {
+		return unitMasks[size + column];
+	}
+
+	// Get the mask of digits present in a sub-grid or region, indexed left to right, top to bottom.
+	public int getBoxMask (int box) {
+		return unitMasks[(2 * size) + box];
+	}
+
+	// Get the mask of digits present in any unit of the rule set.
+	public int getUnitMask (int unit) {
+		return unitMasks[unit];
+	}
+
+	// Get the mask of digits that could still be placed in a cell without a repeat.
+	public int getCandidates (int row, int column) {
+		int cell = (row * size) + column;
+		int mask = rules.cellMasks[cell];
+		for (int unit : rules.cellUnits[cell])
+			mask &= ~unitMasks[unit];
+		return mask;
+	}
+
+	// Get the number of non-empty cells.
+	public int getFilledCount () {
+		return filled;
+	}
+
+	// Determine if no rule is broken.
+	public boolean isValid () {
+		return duplicates == 0 && broken == 0;
+	}
+
+	// Determine if every cell is filled and no rule is broken.
+	public boolean isComplete () {
+		return filled == rules.cellCount && duplicates == 0 && broken == 0;
+	}
+
+	// Get the rules being tracked.
+	public RuleSet getRules () {
+		return rules;
+	}
+
+	// Get the geometry of the grid.
+	public Geometry getGeometry () {
+		return rules.geometry;
+	}
+
+	// Get the index of the sub-grid of the classic grid containing the given cell.
+	public static int getBoxIndex (int row, int column) {
+		return ((row / 3) * 3) + (column / 3);
+	}
+}
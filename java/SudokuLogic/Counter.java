@@ -0,0 +1,43 @@
+package SudokuLogic;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Named counter of events, which only counts while Metrics is enabled.
+public final class Counter
+{
+	private final String name;
+	private final AtomicLong value;
+
+	// Constructor.
+	public Counter (String name) {
+		this.name = name;
+		value = new AtomicLong();
+	}
+
+	// Count one event.
+	public void increment () {
+		if (Metrics.enabled)
+			value.incrementAndGet();
+	}
+
+	// Count a number of events.
+	public void add (long n) {
+		if (Metrics.enabled)
+			value.addAndGet(n);
+	}
+
+	// Get the number of events counted.
+	public long get () {
+		return value.get();
+	}
+
+	// Clear the count.
+	public void reset () {
+		value.set(0);
+	}
+
+	// Get the name of the counter.
+	public String getName () {
+		return name;
+	}
+}
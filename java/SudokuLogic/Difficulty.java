@@ -2,5 +2,24 @@ package SudokuLogic;
 
 // The different difficulties available for the game.
 public enum Difficulty {
-	EASY, MEDIUM, HARD
+	EASY(40, false), MEDIUM(32, false), HARD(26, true);
+
+	private final int clues;			// Number of clues a generated puzzle aims for.
+	private final boolean guessing;		// Whether a generated puzzle may require guessing.
+
+	// Constructor.
+	Difficulty (int clues, boolean guessing) {
+		this.clues = clues;
+		this.guessing = guessing;
+	}
+
+	// Get the number of clues a generated puzzle aims for.
+	public int getClueTarget () {
+		return clues;
+	}
+
+	// Determine if a generated puzzle may require guessing rather than only singles.
+	public boolean allowsGuessing () {
+		return guessing;
+	}
 }
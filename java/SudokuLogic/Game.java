@@ -1,19 +1,163 @@
 package SudokuLogic;
 
-import java.util.ArrayList;
-
+// A game in progress: the board being played, the journal of the player's moves and the
+// current hint. A classic Board supports every operation; a GridBoard of any geometry is
+// played, undone and redone the same way, but the packed state, pencil mark arrays, hints
+// and line strings are only available for the classic grid, and undo does not put back the
+// pencil marks a move cleared since they do not fit in the journal's side entries.
 public class Game 
 {
-	private Board board; // The game board.
+	private PlayableBoard board; // The game board.
+	private final int size;		// Width and height of the board.
+	private MoveJournal journal = new MoveJournal(); // Moves made by the player, for undo and redo.
+	private LogicalSolver solver;	// Solver finding hints, created on first use.
+	private Hint hint;				// Hint for the current cells, or null until asked for one.
 
 	// Constructor.
 	public Game (Difficulty d) {
-		board = new Board(d);
+		this(new Board(d));
+	}
+
+	// Constructor taking a ready board of the given difficulty from a factory's pool.
+	public Game (Difficulty d, PuzzleFactory factory) {
+		this(factory.take(d));
+	}
+
+	// Constructor for an existing board.
+	public Game (Board board) {
+		this((PlayableBoard) board);
+	}
+
+	// Constructor for an existing board of any geometry.
+	public Game (GridBoard board) {
+		this((PlayableBoard) board);
+	}
+
+	// Constructor for either kind of board.
+	private Game (PlayableBoard board) {
+		this.board = board;
+		size = board.getGeometry().getSize();
+	}
+
+	// Get the classic board, failing for a grid of another geometry.
+	private Board classic () {
+		if (!(board instanceof Board))
+			throw new UnsupportedOperationException("Only a 9 by 9 game supports this operation.");
+		return (Board) board;
 	}
 
-	// Set the value of a particular cell.
+	// Set the value of a particular cell, recording the move and the pencil marks it clears.
 	public void setCell (int row, int column, int value) {
+		long start = Metrics.start();
+		int oldValue = board.getCell(row, column);
+		if (oldValue == value || board.isOriginalCell(row, column))
+			return;
+		int cellNotes = 0, peers = 0;
+		if (value != 0 && board instanceof Board) {
+			cellNotes = board.getNotes(row, column);
+			peers = classic().getPeerNotes(row, column, value);
+		}
 		board.setCell(row, column, value);
+		journal.record((row * size) + column, oldValue, value, cellNotes, peers);
+		hint = null;
+		Metrics.MOVES.recordSince(start);
+	}
+
+	// Revert the last move and put back the pencil marks it cleared, returning false if there is none.
+	public boolean undo () {
+		if (!journal.canUndo())
+			return false;
+		int move = journal.undo();
+		Metrics.UNDOS.increment();
+		int cell = MoveJournal.getCell(move);
+		board.setCell(cell / size, cell % size, MoveJournal.getOldValue(move));
+		int notes = journal.getUndoneNotes();
+		if (notes != 0)
+			classic().restoreNotes(cell / 9, cell % 9, MoveJournal.getNewValue(move),
+				MoveJournal.getCellNotes(notes), MoveJournal.getPeerNotes(notes));
+		hint = null;
+		return true;
+	}
+
+	// Reapply the last reverted move, returning false if there is none.
+	public boolean redo () {
+		if (!journal.canRedo())
+			return false;
+		int move = journal.redo();
+		Metrics.UNDOS.increment();
+		int cell = MoveJournal.getCell(move);
+		board.setCell(cell / size, cell % size, MoveJournal.getNewValue(move));
+		hint = null;
+		return true;
+	}
+
+	// Determine if a particular cell holds a digit other than the one in the solution.
+	public boolean isCellWrong (int row, int column) {
+		return board.isWrong(row, column);
+	}
+
+	// Get the digit that belongs in a particular cell according to the solution.
+	public int getSolutionCell (int row, int column) {
+		return board.getSolutionCell(row, column);
+	}
+
+	// Fill a particular cell with its digit from the solution as a move that can be undone.
+	public void revealCell (int row, int column) {
+		setCell(row, column, board.getSolutionCell(row, column));
+	}
+
+	// Get a hint for the next move, or null if the board is already solved. A wrong digit is
+	// pointed out first; otherwise the human techniques are applied to the current cells until
+	// one of them fills a cell, and if they get stuck, the cell with the fewest candidates is
+	// filled from the solution. The hint is kept until the cells change. Only the classic
+	// grid has hints.
+	public Hint getHint () {
+		if (hint != null)
+			return hint;
+		Board board = classic();
+
+		for (int i = 0; i < 81; i++) {
+			if (board.isWrong(i / 9, i % 9))
+				return hint = new Hint(i, board.getSolutionCell(i / 9, i % 9), null, true);
+		}
+
+		if (solver == null)
+			solver = new LogicalSolver();
+		solver.load(board.getGrid());
+		while (solver.step()) {
+			int last = solver.getStepCount() - 1;
+			if (solver.getStepRemoved(last) == 0) {
+				int cell = solver.getStepCell(last);
+				return hint = new Hint(cell, solver.getStepDigit(last), solver.getHardestTechnique(), false);
+			}
+		}
+
+		int best = -1, bestCount = 10;
+		for (int i = 0; i < 81; i++) {
+			int count = Integer.bitCount(solver.getCandidates(i));
+			if (solver.getCell(i) == 0 && count < bestCount) {
+				best = i;
+				bestCount = count;
+			}
+		}
+		if (best < 0)
+			return null;
+		return hint = new Hint(best, board.getSolutionCell(best / 9, best % 9), null, false);
+	}
+
+	// Get the journal of moves made by the player.
+	public MoveJournal getJournal () {
+		return journal;
+	}
+
+	// Get the journal packed into an array of ints.
+	public int[] getJournalArray () {
+		return journal.toArray();
+	}
+
+	// Replace the journal with one restored from getJournalArray, or an empty one if given null.
+	public void setJournalArray (int[] state) {
+		journal = state == null ? new MoveJournal() : new MoveJournal(state);
 	}
 
 	// Get the value of a particular cell.
@@ -23,22 +167,28 @@ public class Game
 
 	// Set the value of a particular cell in the original board..
 	public void setOriginalCell (int row, int column, int value) {
-		board.setOriginalCell(row, column, value);
+		classic().setOriginalCell(row, column, value);
+		hint = null;
 	}
 
 	// Get the value of a particular cell from the original board.
 	public int getOriginalCell (int row, int column) {
-		return board.getOriginalCell(row, column);
+		return classic().getOriginalCell(row, column);
 	}
 
 	// Get the two-dimensional array of integers used in the board.
 	public int[][] getBoardArray () {
-		return board.getBoardArray();
+		return classic().getBoardArray();
 	}
 
 	// Get the two-dimensional array of integers used in the original board.
 	public int[][] getOriginalBoardArray () {
-		return board.getOriginalBoardArray();
+		return classic().getOriginalBoardArray();
+	}
+
+	// Get the board, solution and original cells packed into an array of longs.
+	public long[] getState () {
+		return classic().getState();
 	}
 
 	// Determine if the given cell at row and column is original.
@@ -46,31 +196,79 @@ public class Game
 		return board.isOriginalCell(row, column);
 	}
 
+	// Get the geometry of the Sudoku puzzle.
+	public Geometry getGeometry () {
+		return board.getGeometry();
+	}
+
+	// Get the GridBoard being played, or null if the game plays a classic Board.
+	public GridBoard getGridBoard () {
+		return board instanceof GridBoard ? (GridBoard) board : null;
+	}
+
 	// Determine if the Sudoku puzzle is complete.
 	public boolean isComplete () {
-		boolean complete = true;
-		for (int i = 0; i < 9; i++) {
-			complete = complete && isCompleteList(board.getRow(i));
-			complete = complete && isCompleteList(board.getColumn(i));
-		}	
-		for (int i = 0; i < 3; i++) {
-			for (int j = 0; j < 3; j++)
-				complete = complete && isCompleteList(board.getSubGrid(i, j));
-		}
-		return complete;
+		return board.isComplete();
+	}
+
+	// Determine if the Sudoku puzzle has no repeated digit in any row, column or sub-grid.
+	public boolean isValid () {
+		return board.isValid();
+	}
+
+	// Get the pencil marks of a particular cell as a digit mask.
+	public int getNotes (int row, int column) {
+		return board.getNotes(row, column);
 	}
 
-	// Determine if the given list contains digits 1 through 9.
-	private boolean isCompleteList (ArrayList<Integer> list) {
-		boolean complete = true;
-		for (int i = 1; i <= 9; i++)
-			complete = complete && list.contains(i);
-		return complete;
+	// Add or remove a single pencil mark of a particular cell.
+	public void toggleNote (int row, int column, int digit) {
+		board.toggleNote(row, column, digit);
+	}
+
+	// Set the pencil marks of a particular cell as a digit mask.
+	public void setNotes (int row, int column, int mask) {
+		board.setNotes(row, column, mask);
+	}
+
+	// Mark every empty cell with the digits it could still hold.
+	public void fillNotes () {
+		board.fillNotes();
+	}
+
+	// Determine if any cell may have pencil marks.
+	public boolean hasNotes () {
+		return board.hasNotes();
+	}
+
+	// Get a copy of the pencil marks of every cell, or null if there are none.
+	public short[] getNotesArray () {
+		return classic().getNotesArray();
+	}
+
+	// Set the pencil marks of every cell, or remove them all if given null.
+	public void setNotesArray (short[] values) {
+		classic().setNotesArray(values);
+	}
+
+	// Determine if the digit in a cell is repeated in its row, column or sub-grid.
+	public boolean isConflicting (int row, int column) {
+		return board.isConflicting(row, column);
+	}
+
+	// Set the receiver of changes to the conflicting cells, or null for none.
+	public void setConflictListener (ConflictListener listener) {
+		board.setConflictListener(listener);
 	}
 
 	// Return the solution to the Sudoku puzzle as a string.
 	public String toSolutionString () {
-		return board.toSolutionString();
+		return classic().toSolutionString();
+	}
+
+	// Return the Sudoku puzzle's state as a line of 81 characters.
+	public String toLineString () {
+		return classic().toLineString();
 	}
 
 	// Return the Sudoku puzzle's state as a string.
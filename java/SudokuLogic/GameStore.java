@@ -0,0 +1,444 @@
+package SudokuLogic;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// Local file store for the in-progress game and the history of completion times.
+// Both are read once by a single background thread when the store is opened and then
+// served from memory, while every change is written by the same thread. Until the files
+// have been read the store looks empty; whenLoaded runs an action once they have. Changes
+// made before that thread gets to them are batched into one write, and each file is
+// replaced atomically by writing a temporary file, syncing it and renaming it over the old one.
+public class GameStore
+{
+	private static final int GAME_MAGIC = 0x53554447;	// "SUDG".
+	private static final int SCORES_MAGIC = 0x53554453;	// "SUDS".
+	private static final int VERSION = 1;
+	public static final long UNKNOWN_DATE = -1; // Date of a score imported without one.
+
+	private static GameStore shared; // Store shared by the whole application.
+
+	private final File gameFile;	// Snapshot of the in-progress game.
+	private final File scoresFile;	// History of completion times.
+	private final ExecutorService writer;
+
+	// In-memory state, guarded by this store.
+	private SavedGame savedGame;	// In-progress game, or null if none.
+	private byte[] scoreDifficulties;	// Difficulty ordinal of each completed game.
+	private long[] scoreTimes;		// Completion time in milliseconds of each completed game.
+	private long[] scoreDates;		// Wall-clock time at which each game was completed.
+	private int scoreCount;
+	private final long[] bestTimes;	// Best completion time for each difficulty, or -1 if none.
+	private boolean gameDirty, scoresDirty, flushScheduled;
+	private boolean loaded;			// Whether the files have been read.
+	private final ArrayList<Runnable> loadActions; // Actions waiting for the files to be read.
+	private volatile IOException failure; // Last error met while writing, if any.
+
+	// Constructor opening the store in the given directory, reading any existing files in the background.
+	public GameStore (File directory) {
+		gameFile = new File(directory, "game.dat");
+		scoresFile = new File(directory, "scores.dat");
+		writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread (Runnable r) {
+				Thread thread = new Thread(r, "GameStore");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		bestTimes = new long[Difficulty.values().length];
+		Arrays.fill(bestTimes, -1);
+		scoreDifficulties = new byte[16];
+		scoreTimes = new long[16];
+		scoreDates = new long[16];
+		loadActions = new ArrayList<Runnable>();
+
+		writer.execute(new Runnable() {
+			public void run () {
+				if (!gameFile.getParentFile().isDirectory() && !gameFile.getParentFile().mkdirs())
+					failure = new IOException("Cannot create directory " + gameFile.getParentFile() + ".");
+				load();
+			}
+		});
+	}
+
+	// Get the store shared by the whole application, opening it in the directory on first use.
+	public static synchronized GameStore getShared (File directory) {
+		if (shared == null)
+			shared = new GameStore(directory);
+		return shared;
+	}
+
+	// Determine if the files have been read, before which the store looks empty.
+	public synchronized boolean isLoaded () {
+		return loaded;
+	}
+
+	// Run an action once the files have been read: at once on the calling thread if they
+	// already have, otherwise on the store's thread as soon as they are.
+	public void whenLoaded (Runnable action) {
+		synchronized (this) {
+			if (!loaded) {
+				loadActions.add(action);
+				return;
+			}
+		}
+		action.run();
+	}
+
+	// Get the in-progress game, or null if there is none or the files have not been read yet.
+	public synchronized SavedGame getSavedGame () {
+		return savedGame;
+	}
+
+	// Replace the in-progress game in the background.
+	public synchronized void saveGame (SavedGame game) {
+		savedGame = game;
+		gameDirty = true;
+		schedule();
+	}
+
+	// Remove the in-progress game in the background.
+	public synchronized void clearGame () {
+		savedGame = null;
+		gameDirty = true;
+		schedule();
+	}
+
+	// Add a completion time to the history in the background, returning true if it is a new best.
+	public synchronized boolean recordScore (Difficulty d, long milliseconds) {
+		boolean best = addScore(d, milliseconds, System.currentTimeMillis());
+		scoresDirty = true;
+		schedule();
+		return best;
+	}
+
+	// Seed the best time of a difficulty kept by an earlier version, unless a best time is
+	// already recorded once the files have been read. It joins the history with an unknown date.
+	public void importBestTime (final Difficulty d, final long milliseconds) {
+		whenLoaded(new Runnable() {
+			public void run () {
+				synchronized (GameStore.this) {
+					if (bestTimes[d.ordinal()] >= 0)
+						return;
+					addScore(d, milliseconds, UNKNOWN_DATE);
+					scoresDirty = true;
+					schedule();
+				}
+			}
+		});
+	}
+
+	// Append a score to the history in memory, returning true if it is a new best.
+	private boolean addScore (Difficulty d, long time, long date) {
+		if (scoreCount == scoreTimes.length) {
+			scoreDifficulties = Arrays.copyOf(scoreDifficulties, scoreCount * 2);
+			scoreTimes = Arrays.copyOf(scoreTimes, scoreCount * 2);
+			scoreDates = Arrays.copyOf(scoreDates, scoreCount * 2);
+		}
+		scoreDifficulties[scoreCount] = (byte) d.ordinal();
+		scoreTimes[scoreCount] = time;
+		scoreDates[scoreCount] = date;
+		scoreCount++;
+
+		boolean best = bestTimes[d.ordinal()] < 0 || time < bestTimes[d.ordinal()];
+		if (best)
+			bestTimes[d.ordinal()] = time;
+		return best;
+	}
+
+	// Get the best completion time for a difficulty, or -1 if none has been recorded.
+	public synchronized long getBestTime (Difficulty d) {
+		return bestTimes[d.ordinal()];
+	}
+
+	// Get the number of completed games recorded.
+	public synchronized int getScoreCount () {
+		return scoreCount;
+	}
+
+	// Get the completion time in milliseconds of a recorded game, oldest first.
+	public synchronized long getScoreTime (int index) {
+		return scoreTimes[index];
+	}
+
+	// Get the difficulty of a recorded game, oldest first.
+	public synchronized Difficulty getScoreDifficulty (int index) {
+		return Difficulty.values()[scoreDifficulties[index]];
+	}
+
+	// Get the wall-clock time at which a recorded game was completed, oldest first, or
+	// UNKNOWN_DATE if it was imported without one.
+	public synchronized long getScoreDate (int index) {
+		return scoreDates[index];
+	}
+
+	// Get the last error met while writing in the background, or null if there was none.
+	public IOException getFailure () {
+		return failure;
+	}
+
+	// Block until every change made so far has been written.
+	public void flush () throws InterruptedException {
+		try {
+			writer.submit(new Runnable() {
+				public void run () {}
+			}).get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Read both files on the store's thread, then merge them with any changes made meanwhile
+	// and run the actions waiting for them. A missing or damaged file simply means there is
+	// nothing to resume or no history.
+	private void load () {
+		DataInputStream gameIn = null, scoresIn = null;
+		try {
+			gameIn = open(gameFile, GAME_MAGIC);
+		} catch (IOException e) {
+			gameIn = null;
+		}
+		try {
+			scoresIn = open(scoresFile, SCORES_MAGIC);
+		} catch (IOException e) {
+			scoresIn = null;
+		}
+
+		Runnable[] actions;
+		synchronized (this) {
+			// A game saved or cleared before the files were read replaces the one on disk.
+			if (!gameDirty && gameIn != null) {
+				try {
+					savedGame = readGame(gameIn);
+				} catch (IOException e) {
+					savedGame = null;
+				}
+			}
+
+			// Scores recorded before the files were read follow the history on disk.
+			if (scoresIn != null) {
+				int pending = scoreCount;
+				byte[] difficulties = Arrays.copyOf(scoreDifficulties, pending);
+				long[] times = Arrays.copyOf(scoreTimes, pending);
+				long[] dates = Arrays.copyOf(scoreDates, pending);
+				scoreCount = 0;
+				Arrays.fill(bestTimes, -1);
+				try {
+					readScores(scoresIn);
+				} catch (IOException e) {
+					scoreCount = 0;
+					Arrays.fill(bestTimes, -1);
+				}
+				for (int i = 0; i < pending; i++)
+					addScore(Difficulty.values()[difficulties[i]], times[i], dates[i]);
+			}
+
+			loaded = true;
+			actions = loadActions.toArray(new Runnable[loadActions.size()]);
+			loadActions.clear();
+		}
+		for (Runnable action : actions)
+			action.run();
+	}
+
+	// Schedule a background write unless one is already waiting to run.
+	private void schedule () {
+		if (flushScheduled)
+			return;
+		flushScheduled = true;
+		writer.execute(new Runnable() {
+			public void run () {
+				write();
+			}
+		});
+	}
+
+	// Encode whatever changed under the lock, then write it outside the lock.
+	private void write () {
+		byte[] game = null, scores = null;
+		boolean writeGame, deleteGame = false;
+		synchronized (this) {
+			flushScheduled = false;
+			writeGame = gameDirty;
+			try {
+				if (gameDirty) {
+					if (savedGame == null)
+						deleteGame = true;
+					else
+						game = encodeGame(savedGame);
+				}
+				if (scoresDirty)
+					scores = encodeScores();
+			} catch (IOException e) {
+				failure = e;
+				return;
+			}
+			gameDirty = false;
+			scoresDirty = false;
+		}
+
+		long start = Metrics.start();
+		try {
+			if (deleteGame) {
+				if (gameFile.exists() && !gameFile.delete())
+					throw new IOException("Cannot delete " + gameFile + ".");
+			}
+			else if (writeGame)
+				writeAtomically(gameFile, game);
+			if (scores != null)
+				writeAtomically(scoresFile, scores);
+		} catch (IOException e) {
+			failure = e;
+		}
+		Metrics.PERSISTENCE.recordSince(start);
+	}
+
+	// Replace a file with the given contents, so that readers see either the old or new file.
+	private static void writeAtomically (File target, byte[] data) throws IOException {
+		File temporary = new File(target.getPath() + ".tmp");
+		FileOutputStream out = new FileOutputStream(temporary);
+		try {
+			out.write(data);
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		if (!temporary.renameTo(target))
+			throw new IOException("Cannot replace " + target + ".");
+	}
+
+	// Encode a saved game into the contents of the game file.
+	private static byte[] encodeGame (SavedGame game) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(GAME_MAGIC);
+		out.writeInt(VERSION);
+		out.writeByte(game.getDifficulty().ordinal());
+		out.writeLong(game.getElapsed());
+
+		long[] state = game.getState();
+		out.writeInt(state.length);
+		for (long word : state)
+			out.writeLong(word);
+
+		short[] notes = game.getNotes();
+		out.writeInt(notes == null ? -1 : notes.length);
+		if (notes != null) {
+			for (short mask : notes)
+				out.writeShort(mask);
+		}
+
+		int[] journal = game.getJournal();
+		out.writeInt(journal == null ? -1 : journal.length);
+		if (journal != null) {
+			for (int move : journal)
+				out.writeInt(move);
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	// Read the contents of the game file after its header.
+	private static SavedGame readGame (DataInputStream in) throws IOException {
+		Difficulty difficulty = readDifficulty(in);
+		long elapsed = in.readLong();
+
+		if (in.readInt() != Board.STATE_LENGTH)
+			throw new IOException("Invalid board state.");
+		long[] state = new long[Board.STATE_LENGTH];
+		for (int i = 0; i < state.length; i++)
+			state[i] = in.readLong();
+
+		int length = in.readInt();
+		if (length >= 0 && length != 81)
+			throw new IOException("Invalid pencil marks.");
+		short[] notes = length < 0 ? null : new short[81];
+		for (int i = 0; notes != null && i < notes.length; i++)
+			notes[i] = in.readShort();
+
+		length = in.readInt();
+		if (length > (in.available() / 4))
+			throw new IOException("Invalid move journal.");
+		int[] journal = length < 0 ? null : new int[length];
+		for (int i = 0; journal != null && i < journal.length; i++)
+			journal[i] = in.readInt();
+
+		return new SavedGame(difficulty, elapsed, state, notes, journal);
+	}
+
+	// Encode the history of completion times into the contents of the scores file.
+	private byte[] encodeScores () throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + (scoreCount * 17));
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(SCORES_MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(scoreCount);
+		for (int i = 0; i < scoreCount; i++) {
+			out.writeByte(scoreDifficulties[i]);
+			out.writeLong(scoreTimes[i]);
+			out.writeLong(scoreDates[i]);
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	// Read the contents of the scores file after its header into memory.
+	private void readScores (DataInputStream in) throws IOException {
+		int count = in.readInt();
+		if (count < 0)
+			throw new IOException("Invalid score count " + count + ".");
+		for (int i = 0; i < count; i++) {
+			Difficulty d = readDifficulty(in);
+			long time = in.readLong();
+			long date = in.readLong();
+			addScore(d, time, date);
+		}
+	}
+
+	// Read a whole file and check its header, returning null if it does not exist.
+	private static DataInputStream open (File file, int magic) throws IOException {
+		if (!file.exists())
+			return null;
+
+		byte[] data = new byte[(int) file.length()];
+		InputStream in = new FileInputStream(file);
+		try {
+			int read = 0;
+			while (read < data.length) {
+				int n = in.read(data, read, data.length - read);
+				if (n < 0)
+					throw new IOException("Unexpected end of " + file + ".");
+				read += n;
+			}
+		} finally {
+			in.close();
+		}
+
+		DataInputStream stream = new DataInputStream(new ByteArrayInputStream(data));
+		if (stream.readInt() != magic || stream.readInt() != VERSION)
+			throw new IOException(file + " has an unknown format.");
+		return stream;
+	}
+
+	// Read a difficulty stored by its ordinal.
+	private static Difficulty readDifficulty (DataInputStream in) throws IOException {
+		int ordinal = in.readUnsignedByte();
+		if (ordinal >= Difficulty.values().length)
+			throw new IOException("Invalid difficulty " + ordinal + ".");
+		return Difficulty.values()[ordinal];
+	}
+}
@@ -0,0 +1,105 @@
+package SudokuLogic;
+
+import java.util.Random;
+
+// Puzzle generator that blanks cells of a solved grid while keeping its solution unique.
+// Instances reuse their scratch arrays and are not thread-safe; use one per thread.
+public class Generator
+{
+	private final Random random;	// Source of the order in which cells are blanked.
+	private final Solver solver;	// Solution counter used to verify each blank.
+	private final int[] cells;		// Working copy of the grid being dug.
+	private final int[] order;		// Order in which cells are tried.
+
+	// Constructor.
+	public Generator () {
+		this(new Random());
+	}
+
+	// Constructor with a specific random number generator.
+	public Generator (Random random) {
+		this.random = random;
+		solver = new Solver();
+		cells = new int[81];
+		order = new int[81];
+	}
+
+	// Fill a two-dimensional grid with a random valid Sudoku solution.
+	public void generateSolution (int[][] grid) {
+		fillSolution();
+		for (int i = 0; i < 81; i++)
+			grid[i / 9][i % 9] = cells[i];
+	}
+
+	// Fill a grid of 81 cells with a random valid Sudoku solution.
+	public void generateSolution (int[] grid) {
+		fillSolution();
+		System.arraycopy(cells, 0, grid, 0, 81);
+	}
+
+	// Fill the three sub-grids on the main diagonal with random digits, which never conflict
+	// with one another, and let the solver complete the rest of the grid.
+	private void fillSolution () {
+		for (int i = 0; i < 81; i++)
+			cells[i] = 0;
+
+		for (int box = 0; box < 9; box += 4) {
+			int row = (box / 3) * 3, column = (box % 3) * 3;
+			for (int i = 0; i < 9; i++)
+				order[i] = i + 1;
+			for (int i = 8; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int temporary = order[i];
+				order[i] = order[j];
+				order[j] = temporary;
+			}
+			for (int i = 0; i < 9; i++)
+				cells[((row + (i / 3)) * 9) + column + (i % 3)] = order[i];
+		}
+		solver.solve(cells);
+	}
+
+	// Blank cells of a solved two-dimensional grid in place, returning the number of clues left.
+	public int hideCells (int[][] grid, Difficulty d) {
+		for (int i = 0; i < 81; i++)
+			cells[i] = grid[i / 9][i % 9];
+		int clues = dig(d);
+		for (int i = 0; i < 81; i++)
+			grid[i / 9][i % 9] = cells[i];
+		return clues;
+	}
+
+	// Blank cells of a solved grid of 81 cells in place, returning the number of clues left.
+	public int hideCells (int[] grid, Difficulty d) {
+		System.arraycopy(grid, 0, cells, 0, 81);
+		int clues = dig(d);
+		System.arraycopy(cells, 0, grid, 0, 81);
+		return clues;
+	}
+
+	// Try each cell once in random order, keeping a blank only if the puzzle stays unique and
+	// within the difficulty, and stopping as soon as the clue target is reached.
+	private int dig (Difficulty d) {
+		for (int i = 0; i < 81; i++)
+			order[i] = i;
+		for (int i = 80; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int temporary = order[i];
+			order[i] = order[j];
+			order[j] = temporary;
+		}
+
+		int clues = 81;
+		for (int i = 0; i < 81 && clues > d.getClueTarget(); i++) {
+			int cell = order[i];
+			int value = cells[cell];
+			cells[cell] = 0;
+
+			if (solver.countSolutions(cells, 2) == 1 && (d.allowsGuessing() || solver.getGuessCount() == 0))
+				clues--;
+			else
+				cells[cell] = value;
+		}
+		return clues;
+	}
+}
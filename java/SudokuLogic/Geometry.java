@@ -0,0 +1,124 @@
+package SudokuLogic;
+
+// Shape of a Sudoku grid with sub-grids of k by k cells, giving a board of k * k by k * k cells
+// and digits 1 through k * k. Cells are indexed row by row and units are numbered rows, then
+// columns, then sub-grids, as for the classic 9 by 9 grid. Since k * k is at most 25, the digits
+// of any unit fit in a single int mask, with digit d represented by bit (d - 1). Instances are
+// immutable and shared, one per box size.
+public final class Geometry
+{
+	public static final int MIN_BOX_SIZE = 2;	// 4 by 4 grids.
+	public static final int MAX_BOX_SIZE = 5;	// 25 by 25 grids.
+
+	private static final Geometry[] SHAPES = new Geometry[MAX_BOX_SIZE + 1];
+
+	public static final Geometry CLASSIC = of(3); // The classic 9 by 9 grid.
+
+	final int boxSize;		// Width and height of a sub-grid.
+	final int size;			// Width and height of the grid, and the number of digits.
+	final int cellCount;	// Number of cells in the grid.
+	final int allDigits;	// Mask containing every digit.
+
+	// Row, column and sub-grid of each cell.
+	final int[] row;
+	final int[] column;
+	final int[] box;
+
+	final int[][] units;	// Cells of each unit: rows, then columns, then sub-grids.
+	final int[][] peers;	// Cells sharing a row, column or sub-grid with each cell, in order.
+
+	// Constructor building the tables for the given box size.
+	private Geometry (int boxSize) {
+		this.boxSize = boxSize;
+		size = boxSize * boxSize;
+		cellCount = size * size;
+		allDigits = (1 << size) - 1;
+
+		row = new int[cellCount];
+		column = new int[cellCount];
+		box = new int[cellCount];
+		units = new int[3 * size][size];
+		for (int i = 0; i < cellCount; i++) {
+			int r = i / size, c = i % size, b = ((r / boxSize) * boxSize) + (c / boxSize);
+			row[i] = r;
+			column[i] = c;
+			box[i] = b;
+			units[r][c] = i;
+			units[size + c][r] = i;
+			units[(2 * size) + b][((r % boxSize) * boxSize) + (c % boxSize)] = i;
+		}
+
+		peers = new int[cellCount][(3 * size) - (2 * boxSize) - 1];
+		for (int i = 0; i < cellCount; i++) {
+			int count = 0;
+			for (int j = 0; j < cellCount; j++) {
+				if (i != j && (row[i] == row[j] || column[i] == column[j] || box[i] == box[j]))
+					peers[i][count++] = j;
+			}
+		}
+	}
+
+	// Get the shared geometry for sub-grids of the given size.
+	public static synchronized Geometry of (int boxSize) {
+		if (boxSize < MIN_BOX_SIZE || boxSize > MAX_BOX_SIZE)
+			throw new IllegalArgumentException("Unsupported box size " + boxSize + ".");
+		if (SHAPES[boxSize] == null)
+			SHAPES[boxSize] = new Geometry(boxSize);
+		return SHAPES[boxSize];
+	}
+
+	// Get the width and height of a sub-grid.
+	public int getBoxSize () {
+		return boxSize;
+	}
+
+	// Get the width and height of the grid, which is also the largest digit.
+	public int getSize () {
+		return size;
+	}
+
+	// Get the number of cells in the grid.
+	public int getCellCount () {
+		return cellCount;
+	}
+
+	// Get the number of rows, columns and sub-grids together.
+	public int getUnitCount () {
+		return 3 * size;
+	}
+
+	// Get the mask containing every digit.
+	public int getAllDigits () {
+		return allDigits;
+	}
+
+	// Get the index of the cell at the given row and column.
+	public int getCell (int row, int column) {
+		return (row * size) + column;
+	}
+
+	// Get the row of a cell.
+	public int getRow (int cell) {
+		return row[cell];
+	}
+
+	// Get the column of a cell.
+	public int getColumn (int cell) {
+		return column[cell];
+	}
+
+	// Get the sub-grid of a cell, indexed left to right, top to bottom.
+	public int getBox (int cell) {
+		return box[cell];
+	}
+
+	// Get the index of the sub-grid containing the given row and column.
+	public int getBoxIndex (int row, int column) {
+		return ((row / boxSize) * boxSize) + (column / boxSize);
+	}
+
+	// Return the geometry as its dimensions, such as "9x9".
+	public String toString () {
+		return size + "x" + size;
+	}
+}
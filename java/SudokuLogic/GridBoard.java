@@ -0,0 +1,242 @@
+package SudokuLogic;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Board for a grid of any geometry and rule set, such as the 16 by 16 and 25 by 25 puzzles
+// or a variant. It plays like Board, keeping the player's cells, pencil marks, the solution
+// and the original cells, with conflicts tracked by Constraints, but stores one int per cell
+// since the packed formats only hold digits up to 9. A Game plays it through PlayableBoard;
+// the packed state, saved games and hints remain for the classic Board only.
+public class GridBoard implements PlayableBoard
+{
+	private final RuleSet rules;
+	private final Geometry geometry;
+	private final int[] board;			// Active board manipulated by the player.
+	private final int[] solution;		// Solution board the player is working towards.
+	private final boolean[] givens;		// Original cells, which the player cannot change.
+	private final Constraints constraints;	// Digits placed in each unit of the rules.
+	private int[] notes;				// Pencil marks of each cell as a digit mask, created on first use.
+
+	// Constructor generating a puzzle of the given geometry and difficulty.
+	public GridBoard (Geometry geometry, Difficulty d) {
+		this(RuleSet.standard(geometry), d, new Random());
+	}
+
+	// Constructor with a specific random number generator, which is reused for every step.
+	public GridBoard (Geometry geometry, Difficulty d, Random random) {
+		this(RuleSet.standard(geometry), d, random);
+	}
+
+	// Constructor generating a puzzle following the given rules.
+	public GridBoard (RuleSet rules, Difficulty d) {
+		this(rules, d, new Random());
+	}
+
+	// Constructor generating a puzzle following the given rules with a specific random number generator.
+	public GridBoard (RuleSet rules, Difficulty d, Random random) {
+		long start = Metrics.start();
+		this.rules = rules;
+		geometry = rules.geometry;
+		GridGenerator generator = new GridGenerator(rules, random);
+		solution = new int[geometry.cellCount];
+		generator.generateSolution(solution);
+		board = solution.clone();
+		generator.hideCells(board, d);
+
+		givens = new boolean[geometry.cellCount];
+		constraints = new Constraints(rules);
+		markGivens();
+		Metrics.GRID_GENERATION.recordSince(start);
+	}
+
+	// Constructor for a puzzle with a known solution, whose non-empty cells become original.
+	public GridBoard (Geometry geometry, int[] puzzle, int[] solution) {
+		this(RuleSet.standard(geometry), puzzle, solution);
+	}
+
+	// Constructor for a puzzle following the given rules with a known solution.
+	public GridBoard (RuleSet rules, int[] puzzle, int[] solution) {
+		this.rules = rules;
+		geometry = rules.geometry;
+		if (puzzle.length != geometry.cellCount || solution.length != geometry.cellCount)
+			throw new IllegalArgumentException("A " + geometry + " grid has " + geometry.cellCount + " cells.");
+		board = puzzle.clone();
+		this.solution = solution.clone();
+		givens = new boolean[geometry.cellCount];
+		constraints = new Constraints(rules);
+		markGivens();
+	}
+
+	// Mark the non-empty cells as original and load them into the constraints.
+	private void markGivens () {
+		int size = geometry.size;
+		for (int i = 0; i < board.length; i++) {
+			givens[i] = board[i] != 0;
+			if (board[i] != 0)
+				constraints.update(i / size, i % size, 0, board[i]);
+		}
+	}
+
+	// Set the value of a particular cell, unless it is original.
+	public void setCell (int row, int column, int value) {
+		if (value < 0 || value > geometry.size)
+			throw new IllegalArgumentException("Invalid cell value " + value + ".");
+		int cell = geometry.getCell(row, column);
+		if (givens[cell])
+			return;
+		constraints.update(row, column, board[cell], value);
+		board[cell] = value;
+
+		// A placed digit can no longer be a pencil mark of the cell or of its peers.
+		if (value != 0 && notes != null) {
+			int bit = 1 << (value - 1);
+			notes[cell] = 0;
+			for (int peer : rules.peers[cell])
+				notes[peer] &= ~bit;
+		}
+	}
+
+	// Get the pencil marks of a particular cell as a digit mask.
+	public int getNotes (int row, int column) {
+		return notes == null ? 0 : notes[geometry.getCell(row, column)];
+	}
+
+	// Set the pencil marks of a particular cell as a digit mask, keeping only the digits the
+	// cell allows, unless it is original.
+	public void setNotes (int row, int column, int mask) {
+		int cell = geometry.getCell(row, column);
+		if (givens[cell])
+			return;
+		if (notes == null)
+			notes = new int[geometry.cellCount];
+		notes[cell] = mask & rules.cellMasks[cell];
+	}
+
+	// Add or remove a single pencil mark of a particular cell.
+	public void toggleNote (int row, int column, int digit) {
+		setNotes(row, column, getNotes(row, column) ^ (1 << (digit - 1)));
+	}
+
+	// Mark every empty cell with the digits not yet placed in any of its units.
+	public void fillNotes () {
+		if (notes == null)
+			notes = new int[geometry.cellCount];
+		int size = geometry.size;
+		for (int i = 0; i < board.length; i++)
+			notes[i] = board[i] == 0 ? constraints.getCandidates(i / size, i % size) : 0;
+	}
+
+	// Determine if any cell may have pencil marks.
+	public boolean hasNotes () {
+		return notes != null;
+	}
+
+	// Get the value of a particular cell.
+	public int getCell (int row, int column) {
+		return board[geometry.getCell(row, column)];
+	}
+
+	// Get the value of a particular cell in the solution.
+	public int getSolutionCell (int row, int column) {
+		return solution[geometry.getCell(row, column)];
+	}
+
+	// Determine if the cell at the particular row and column is original.
+	public boolean isOriginalCell (int row, int column) {
+		return givens[geometry.getCell(row, column)];
+	}
+
+	// Determine if a particular cell holds a digit other than the one in the solution.
+	public boolean isWrong (int row, int column) {
+		int cell = geometry.getCell(row, column);
+		return board[cell] != 0 && board[cell] != solution[cell];
+	}
+
+	// Get a copy of the board, row by row.
+	public int[] getBoardArray () {
+		return board.clone();
+	}
+
+	// Get a copy of the original board, holding only the original cells.
+	public int[] getPuzzleArray () {
+		int[] puzzle = new int[board.length];
+		for (int i = 0; i < board.length; i++) {
+			if (givens[i])
+				puzzle[i] = board[i];
+		}
+		return puzzle;
+	}
+
+	// Get a copy of the solution, row by row.
+	public int[] getSolutionArray () {
+		return solution.clone();
+	}
+
+	// Get the bookkeeping of the digits in each unit of the board.
+	public Constraints getConstraints () {
+		return constraints;
+	}
+
+	// Determine if every cell is filled without breaking any rule.
+	public boolean isComplete () {
+		long start = Metrics.start();
+		boolean complete = constraints.isComplete();
+		Metrics.VALIDATION.recordSince(start);
+		return complete;
+	}
+
+	// Determine if no rule is broken.
+	public boolean isValid () {
+		return constraints.isValid();
+	}
+
+	// Determine if the digit in a cell breaks any rule.
+	public boolean isConflicting (int row, int column) {
+		return constraints.isConflicting(row, column);
+	}
+
+	// Set the receiver of changes to the conflicting cells, or null for none.
+	public void setConflictListener (ConflictListener listener) {
+		constraints.setConflictListener(listener);
+	}
+
+	// Get the rules of the board.
+	public RuleSet getRules () {
+		return rules;
+	}
+
+	// Get the geometry of the board.
+	public Geometry getGeometry () {
+		return geometry;
+	}
+
+	// Determine if another board has the same rules, cells, solution and original cells.
+	public boolean equals (Object o) {
+		if (!(o instanceof GridBoard))
+			return false;
+		GridBoard other = (GridBoard) o;
+		return rules == other.rules && Arrays.equals(board, other.board)
+			&& Arrays.equals(solution, other.solution) && Arrays.equals(givens, other.givens);
+	}
+
+	public int hashCode () {
+		return (31 * Arrays.hashCode(board)) + Arrays.hashCode(givens);
+	}
+
+	// Return the board as rows of space-separated values, using '.' for empty cells.
+	public String toString () {
+		int size = geometry.size;
+		StringBuilder s = new StringBuilder(board.length * 3);
+		for (int i = 0; i < board.length; i++) {
+			if (board[i] == 0)
+				s.append(size > 9 ? " ." : ".");
+			else if (size > 9 && board[i] < 10)
+				s.append(' ').append(board[i]);
+			else
+				s.append(board[i]);
+			s.append((i + 1) % size == 0 ? '\n' : ' ');
+		}
+		return s.toString();
+	}
+}
@@ -0,0 +1,121 @@
+package SudokuLogic;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+// Reading and writing of packed grids in the standard 81-character line format, a compact
+// binary format and the pretty-printed grid, without allocating per cell.
+public final class GridFormat
+{
+	public static final int LINE_LENGTH = 81;	// Characters in the line format.
+	public static final int BINARY_LENGTH = 41;	// Bytes in the binary format, two cells per byte.
+
+	private GridFormat () {}
+
+	// Write a grid as 81 characters row by row, using '.' for empty cells.
+	public static void writeLine (PackedGrid grid, Appendable out) throws IOException {
+		for (int i = 0; i < 81; i++) {
+			int value = grid.get(i);
+			out.append(value == 0 ? '.' : (char) ('0' + value));
+		}
+	}
+
+	// Read a grid from 81 characters starting at the given offset, accepting '.' or '0' for
+	// empty cells.
+	public static void readLine (CharSequence in, int offset, PackedGrid grid) {
+		if (in.length() - offset < LINE_LENGTH)
+			throw new IllegalArgumentException("A line must contain 81 cells.");
+
+		for (int i = 0; i < 81; i++) {
+			char c = in.charAt(offset + i);
+			if (c == '.' || c == '0')
+				grid.set(i, 0);
+			else if (c >= '1' && c <= '9')
+				grid.set(i, c - '0');
+			else
+				throw new IllegalArgumentException("Invalid cell '" + c + "' at position " + i + ".");
+		}
+	}
+
+	// Read a grid from a line of 81 characters.
+	public static PackedGrid readLine (CharSequence in) {
+		PackedGrid grid = new PackedGrid();
+		readLine(in, 0, grid);
+		return grid;
+	}
+
+	// Write a grid as 41 bytes, with the even cell of each pair in the low nibble.
+	public static void writeBinary (PackedGrid grid, ByteBuffer out) {
+		for (int i = 0; i < 80; i += 2)
+			out.put((byte) (grid.get(i) | (grid.get(i + 1) << 4)));
+		out.put((byte) grid.get(80));
+	}
+
+	// Read a grid from 41 bytes written by writeBinary.
+	public static void readBinary (ByteBuffer in, PackedGrid grid) {
+		if (in.remaining() < BINARY_LENGTH)
+			throw new BufferUnderflowException();
+
+		for (int i = 0; i < 80; i += 2) {
+			int pair = in.get() & 0xFF;
+			grid.set(i, checkValue(pair & 0xF));
+			grid.set(i + 1, checkValue(pair >>> 4));
+		}
+		grid.set(80, checkValue(in.get() & 0xF));
+	}
+
+	// Read a grid from 41 bytes at an absolute offset, leaving the buffer's position unchanged.
+	public static void readBinary (ByteBuffer in, int offset, PackedGrid grid) {
+		for (int i = 0; i < 80; i += 2) {
+			int pair = in.get(offset + (i >>> 1)) & 0xFF;
+			grid.set(i, checkValue(pair & 0xF));
+			grid.set(i + 1, checkValue(pair >>> 4));
+		}
+		grid.set(80, checkValue(in.get(offset + 40) & 0xF));
+	}
+
+	// Ensure a value read from the binary format is a digit or an empty cell.
+	private static int checkValue (int value) {
+		if (value > 9)
+			throw new IllegalArgumentException("Invalid cell value " + value + ".");
+		return value;
+	}
+
+	// Write a grid as nine lines of digits, separating the sub-grids with bars and dashes.
+	public static void writePretty (PackedGrid grid, Appendable out) throws IOException {
+		for (int i = 0; i < 9; i++) {
+			for (int j = 0; j < 9; j++) {
+				out.append(' ').append((char) ('0' + grid.get(i, j)));
+				if ((j + 1) % 3 == 0)
+					out.append(" |");
+			}
+			if ((i + 1) % 3 == 0)
+				out.append("\n------------------------\n");
+			else
+				out.append('\n');
+		}
+	}
+
+	// Return a grid pretty-printed as a string.
+	public static String toPrettyString (PackedGrid grid) {
+		StringBuilder s = new StringBuilder(256);
+		try {
+			writePretty(grid, s);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // A StringBuilder never throws.
+		}
+		return s.toString();
+	}
+
+	// Return a grid as a line of 81 characters.
+	public static String toLineString (PackedGrid grid) {
+		StringBuilder s = new StringBuilder(LINE_LENGTH);
+		try {
+			writeLine(grid, s);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // A StringBuilder never throws.
+		}
+		return s.toString();
+	}
+}
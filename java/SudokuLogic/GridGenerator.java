@@ -0,0 +1,250 @@
+package SudokuLogic;
+
+import java.util.Random;
+
+// Puzzle generator for any rule set on grids of any geometry. Under the plain rules a
+// solution is found as Generator does, by filling the sub-grids on the diagonal at random
+// and completing the grid with a search trying digits in random order, so that any
+// solution can come out; a shuffled pattern grid is only the fallback if every search
+// gives up. A variant's solution is found by the same search from an empty grid. Cells
+// are then blanked as Generator does, with each proof of uniqueness held to a node budget
+// proportional to the grid, so that large grids keep a clue rather than search for too long.
+// Instances reuse their scratch arrays and are not thread-safe; use one per thread.
+public class GridGenerator
+{
+	private static final int NODE_BUDGET = 2;		// Digits tried per cell in each uniqueness check.
+	private static final int FILL_BUDGET = 64;		// Digits tried per cell by each search for a variant's solution.
+	private static final int FILL_ATTEMPTS = 16;	// Searches restarted before giving up on a variant.
+
+	private final RuleSet rules;
+	private final Geometry geometry;
+	private final Random random;		// Source of the shuffles and of the order cells are blanked.
+	private final GridSolver solver;	// Solution counter used to verify each blank.
+	private final GridSolver filler;	// Randomized search for the solutions of a variant.
+	private final int[] cells;			// Working copy of the grid being dug.
+	private final int[] order;			// Order in which cells are tried.
+	private final int[] rows;			// Pattern row placed in each row.
+	private final int[] columns;		// Pattern column placed in each column.
+	private final int[] digits;			// Digit replacing each pattern digit.
+	private final int[] groups;			// Scratch permutation of bands, stacks or lines within one.
+
+	// Constructor for the plain rules of a grid of the given geometry.
+	public GridGenerator (Geometry geometry) {
+		this(RuleSet.standard(geometry), new Random());
+	}
+
+	// Constructor for the plain rules with a specific random number generator.
+	public GridGenerator (Geometry geometry, Random random) {
+		this(RuleSet.standard(geometry), random);
+	}
+
+	// Constructor for a grid following the given rules.
+	public GridGenerator (RuleSet rules) {
+		this(rules, new Random());
+	}
+
+	// Constructor for the given rules with a specific random number generator.
+	public GridGenerator (RuleSet rules, Random random) {
+		this.rules = rules;
+		geometry = rules.geometry;
+		this.random = random;
+		solver = new GridSolver(rules);
+		filler = new GridSolver(rules);
+		filler.setRandom(random);
+		filler.setNodeLimit((long) FILL_BUDGET * geometry.cellCount);
+		cells = new int[geometry.cellCount];
+		order = new int[geometry.cellCount];
+		rows = new int[geometry.size];
+		columns = new int[geometry.size];
+		digits = new int[geometry.size + 1];
+		groups = new int[geometry.boxSize];
+	}
+
+	// Fill a grid with a random valid solution, failing if the rules have none.
+	public void generateSolution (int[] grid) {
+		if (!rules.standard)
+			fillVariant(grid);
+		else if (!fillStandard(grid))
+			fillPattern(grid);
+	}
+
+	// Fill the sub-grids on the main diagonal with random digits, which never conflict with
+	// one another, and let a randomized search complete the rest of the grid, restarting a
+	// search that strays into a subtree too large for its budget. Returns false if every
+	// attempt gave up.
+	private boolean fillStandard (int[] grid) {
+		int k = geometry.boxSize, n = geometry.size;
+		for (int attempt = 0; attempt < FILL_ATTEMPTS; attempt++) {
+			for (int i = 0; i < geometry.cellCount; i++)
+				grid[i] = 0;
+			for (int box = 0; box < k; box++) {
+				for (int i = 1; i <= n; i++)
+					digits[i] = i;
+				shuffle(digits, 1, n);
+				for (int i = 0; i < n; i++)
+					grid[(((box * k) + (i / k)) * n) + (box * k) + (i % k)] = digits[i + 1];
+			}
+			if (filler.solve(grid))
+				return true;
+		}
+		return false;
+	}
+
+	// Fill a grid by shuffling the bands, stacks, rows within bands, columns within stacks
+	// and digits of a valid pattern grid, which cannot fail but only reaches the solutions
+	// equivalent to the pattern.
+	private void fillPattern (int[] grid) {
+		int k = geometry.boxSize, n = geometry.size;
+		shuffleLines(rows);
+		shuffleLines(columns);
+		for (int i = 1; i <= n; i++)
+			digits[i] = i;
+		shuffle(digits, 1, n);
+
+		// The pattern places digit ((k * (r % k)) + (r / k) + c) % n + 1 at row r and column c.
+		boolean transpose = random.nextBoolean();
+		for (int r = 0; r < n; r++) {
+			int pr = rows[r];
+			for (int c = 0; c < n; c++) {
+				int value = digits[((k * (pr % k)) + (pr / k) + columns[c]) % n + 1];
+				if (transpose)
+					grid[(c * n) + r] = value;
+				else
+					grid[(r * n) + c] = value;
+			}
+		}
+	}
+
+	// Search for a random solution of a variant, restarting a search that strays into a
+	// subtree too large for its budget.
+	private void fillVariant (int[] grid) {
+		for (int attempt = 0; attempt < FILL_ATTEMPTS; attempt++) {
+			for (int i = 0; i < geometry.cellCount; i++)
+				grid[i] = 0;
+			if (filler.solve(grid))
+				return;
+			if (!filler.isAborted())
+				throw new IllegalStateException("The rules have no solution.");
+		}
+		throw new IllegalStateException("No solution of the rules was found.");
+	}
+
+	// Fill an order of lines by shuffling the bands and then the lines within each band.
+	private void shuffleLines (int[] lines) {
+		int k = geometry.boxSize;
+		for (int i = 0; i < k; i++)
+			groups[i] = i;
+		shuffle(groups, 0, k);
+		for (int band = 0; band < k; band++) {
+			for (int i = 0; i < k; i++)
+				lines[(band * k) + i] = (groups[band] * k) + i;
+			shuffle(lines, band * k, k);
+		}
+	}
+
+	// Shuffle a range of an array in place.
+	private void shuffle (int[] array, int offset, int length) {
+		for (int i = length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int temporary = array[offset + i];
+			array[offset + i] = array[offset + j];
+			array[offset + j] = temporary;
+		}
+	}
+
+	// Get the number of clues a difficulty aims for, scaled from the classic grid to this one.
+	public int getClueTarget (Difficulty d) {
+		return (int) (((long) d.getClueTarget() * geometry.cellCount + 80) / 81);
+	}
+
+	// Blank cells of a solved grid in place, returning the number of clues left.
+	public int hideCells (int[] grid, Difficulty d) {
+		System.arraycopy(grid, 0, cells, 0, geometry.cellCount);
+		int clues = dig(d);
+		System.arraycopy(cells, 0, grid, 0, geometry.cellCount);
+		return clues;
+	}
+
+	// Blank cells in a random order until the clue target is reached, first keeping only the
+	// blanks that singles alone prove unique, which is cheap and leaves a puzzle solvable
+	// without guessing, and then, if the difficulty allows guessing, trying the remaining
+	// clues again with a search that may guess. A guessing search on a large grid needs far
+	// more nodes to prove a blank, so its budget also grows with the sub-grid size.
+	private int dig (Difficulty d) {
+		int count = geometry.cellCount;
+		for (int i = 0; i < count; i++)
+			order[i] = i;
+		shuffle(order, 0, count);
+
+		int target = getClueTarget(d);
+		solver.setGuessLimit(0);
+		solver.setNodeLimit((long) NODE_BUDGET * count);
+		int clues = dig(count, target);
+		if (d.allowsGuessing() && clues > target) {
+			solver.setGuessLimit(Long.MAX_VALUE);
+			solver.setNodeLimit((long) NODE_BUDGET * count * geometry.boxSize);
+			clues = dig(clues, target);
+		}
+		return clues;
+	}
+
+	// Try each remaining clue once in the current order, keeping a blank only if the solver
+	// proves the puzzle unique within its limits, and stopping as soon as the clue target
+	// is reached.
+	private int dig (int clues, int target) {
+		int count = geometry.cellCount;
+		for (int i = 0; i < count && clues > target; i++) {
+			int cell = order[i];
+			int value = cells[cell];
+			if (value == 0)
+				continue;
+			cells[cell] = 0;
+
+			if (isForced(cell, value) || solver.hasUniqueSolution(cells))
+				clues--;
+			else
+				cells[cell] = value;
+		}
+		return clues;
+	}
+
+	// Determine if a blanked cell could only hold its digit given the clues around it, either
+	// as the last digit it allows that is missing from its peers or as the only place for its
+	// digit in a unit holding every digit, in which case the blank keeps the puzzle unique
+	// without asking the solver.
+	private boolean isForced (int cell, int value) {
+		int bit = 1 << (value - 1);
+		if ((rules.cellMasks[cell] & ~seen(cell)) == bit)
+			return true;
+
+		for (int unit : rules.cellUnits[cell]) {
+			if (unit >= rules.completeCount)
+				break;
+			boolean single = true;
+			for (int other : rules.units[unit]) {
+				if (other != cell && cells[other] == 0 && (rules.cellMasks[other] & ~seen(other) & bit) != 0) {
+					single = false;
+					break;
+				}
+			}
+			if (single)
+				return true;
+		}
+		return false;
+	}
+
+	// Get the mask of digits among the clues sharing a unit with a cell.
+	private int seen (int cell) {
+		int mask = 0;
+		for (int peer : rules.peers[cell]) {
+			if (cells[peer] != 0)
+				mask |= 1 << (cells[peer] - 1);
+		}
+		return mask;
+	}
+
+	// Get the rules of the grids this generator builds.
+	public RuleSet getRules () {
+		return rules;
+	}
+}
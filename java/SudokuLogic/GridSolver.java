@@ -0,0 +1,343 @@
+package SudokuLogic;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Bitboard backtracking solver for any rule set on grids from 4 by 4 to 25 by 25.
+// It searches like Solver, placing a hidden single when one exists and otherwise branching
+// on the cell with the fewest candidates, with the digits of each unit held in one int mask.
+// Candidates come from the units of each cell in the rule set's tables, narrowed by the
+// digits the cell allows and by the sums its cages still need, so variants need no code
+// of their own. A search can be given node and guess budgets so that a proof of uniqueness
+// on a large grid gives up instead of running away, and a random order of digits so that it
+// finds a random solution, and a deadline or a shared flag can stop it from another thread.
+// Instances are not thread-safe; use one per thread.
+public class GridSolver
+{
+	private static final int STOP_CHECK_MASK = 1023; // Digits tried between checks of the deadline and stop flag.
+
+	private final RuleSet rules;
+	private final int size;
+	private final int cellCount;
+	private final int unitCount;
+	private final int completeCount;	// Number of units that must hold every digit.
+
+	// Working state for the search.
+	private final int[] cells;		// Current digit of each cell, or zero if empty.
+	private final int[] used;		// Digits placed in each unit.
+	private final int[] sums;		// Sum of the digits placed in each unit.
+	private final int[] left;		// Number of empty cells in each unit.
+	private final int[] empty;		// Indices of the empty cells; those before the depth are filled.
+	private final int[] solution;	// First solution found by the last search.
+	private final int[] candidates;	// Scratch candidate mask of each empty cell.
+	private final int[] once;		// Scratch mask of digits with a candidate cell in each unit.
+	private final int[] twice;		// Scratch mask of digits with two or more candidate cells in each unit.
+	private int emptyCount;
+	private int limit;
+	private long nodeLimit;			// Number of digits that may be tried before giving up.
+	private long guessLimit;		// Number of guesses that may be made before giving up.
+	private Random random;			// Source of the order digits are tried in, or null for increasing.
+	private long deadline;			// System.nanoTime at which to give up, or Long.MAX_VALUE for none.
+	private AtomicBoolean stop;		// Flag set elsewhere to give up, or null for none.
+
+	// Statistics for the last search.
+	private int solutions;		// Number of solutions found, never more than the limit.
+	private long nodes;			// Number of digits tried.
+	private long guesses;		// Number of cells where more than one digit had to be tried.
+	private boolean aborted;	// Whether a budget ran out before the search finished.
+
+	// Constructor for the plain rules of a grid of the given geometry.
+	public GridSolver (Geometry geometry) {
+		this(RuleSet.standard(geometry));
+	}
+
+	// Constructor for a grid following the given rules.
+	public GridSolver (RuleSet rules) {
+		this.rules = rules;
+		size = rules.size;
+		cellCount = rules.cellCount;
+		unitCount = rules.units.length;
+		completeCount = rules.completeCount;
+		cells = new int[cellCount];
+		used = new int[unitCount];
+		sums = new int[unitCount];
+		left = new int[unitCount];
+		empty = new int[cellCount];
+		solution = new int[cellCount];
+		candidates = new int[cellCount];
+		once = new int[unitCount];
+		twice = new int[unitCount];
+		nodeLimit = Long.MAX_VALUE;
+		guessLimit = Long.MAX_VALUE;
+		deadline = Long.MAX_VALUE;
+	}
+
+	// Set the number of digits a search may try before giving up, or Long.MAX_VALUE for no limit.
+	public void setNodeLimit (long nodeLimit) {
+		this.nodeLimit = nodeLimit;
+	}
+
+	// Set the number of guesses a search may make before giving up, or Long.MAX_VALUE for no
+	// limit. A limit of zero stops at the first cell that cannot be filled by a single.
+	public void setGuessLimit (long guessLimit) {
+		this.guessLimit = guessLimit;
+	}
+
+	// Set the System.nanoTime at which a search gives up, or Long.MAX_VALUE for no deadline.
+	public void setDeadline (long deadline) {
+		this.deadline = deadline;
+	}
+
+	// Set a flag that makes a search give up once another thread sets it, or null for none.
+	public void setStopFlag (AtomicBoolean stop) {
+		this.stop = stop;
+	}
+
+	// Set the source of a random order in which to try digits, or null to try them in increasing order.
+	public void setRandom (Random random) {
+		this.random = random;
+	}
+
+	// Solve the given grid in place, returning false if it has no solution or the search gave up.
+	public boolean solve (int[] grid) {
+		if (countSolutions(grid, 1) == 0)
+			return false;
+		System.arraycopy(solution, 0, grid, 0, cellCount);
+		return true;
+	}
+
+	// Count the solutions of a grid, stopping once the limit is reached or a budget runs out.
+	public int countSolutions (int[] grid, int limit) {
+		long start = Metrics.start();
+		System.arraycopy(grid, 0, cells, 0, cellCount);
+		this.limit = limit;
+		solutions = 0;
+		nodes = 0;
+		guesses = 0;
+		aborted = false;
+		emptyCount = 0;
+
+		for (int u = 0; u < unitCount; u++) {
+			used[u] = 0;
+			sums[u] = 0;
+			left[u] = rules.units[u].length;
+		}
+
+		for (int i = 0; i < cellCount; i++) {
+			int value = cells[i];
+			if (value == 0) {
+				empty[emptyCount++] = i;
+				continue;
+			}
+
+			// Givens that already break a rule leave nothing to search.
+			int bit = 1 << (value - 1);
+			if ((rules.cellMasks[i] & bit) == 0)
+				return 0;
+			for (int u : rules.cellUnits[i]) {
+				if ((used[u] & bit) != 0)
+					return 0;
+				place(u, bit, value);
+			}
+		}
+		for (int u = completeCount; u < unitCount; u++) {
+			if (left[u] == 0 && rules.sums[u] != 0 && sums[u] != rules.sums[u])
+				return 0;
+		}
+
+		if (limit > 0)
+			search(0);
+		Metrics.SOLVING.recordSince(start);
+		return solutions;
+	}
+
+	// Determine if the given grid has exactly one solution, which is only known if the search
+	// finished within its budgets.
+	public boolean hasUniqueSolution (int[] grid) {
+		return countSolutions(grid, 2) == 1 && !aborted;
+	}
+
+	// Fill the empty cells from the given depth, branching on a hidden single or else the most constrained cell.
+	private void search (int depth) {
+		if (depth == emptyCount) {
+			if (solutions == 0)
+				System.arraycopy(cells, 0, solution, 0, cellCount);
+			solutions++;
+			return;
+		}
+
+		// Find the empty cell with the fewest candidates.
+		int best = depth;
+		int bestMask = 0;
+		int bestCount = size + 1;
+		for (int i = depth; i < emptyCount; i++) {
+			int cell = empty[i];
+			int mask = getCandidates(cell);
+			int count = Integer.bitCount(mask);
+			if (count < bestCount) {
+				best = i;
+				bestMask = mask;
+				bestCount = count;
+				if (count <= 1)
+					break;
+			}
+			candidates[cell] = mask;
+		}
+		if (bestCount == 0)
+			return;
+
+		// Prefer a digit that fits in only one cell of some unit holding every digit over guessing.
+		if (bestCount > 1) {
+			for (int i = 0; i < completeCount; i++) {
+				once[i] = 0;
+				twice[i] = 0;
+			}
+			for (int i = depth; i < emptyCount; i++) {
+				int cell = empty[i];
+				int mask = candidates[cell];
+				for (int u : rules.cellUnits[cell]) {
+					if (u >= completeCount)
+						break;
+					twice[u] |= once[u] & mask;
+					once[u] |= mask;
+				}
+			}
+
+			for (int u = 0; u < completeCount; u++) {
+				if ((once[u] | used[u]) != rules.allDigits)
+					return; // A digit has nowhere left to go in this unit.
+
+				int hidden = once[u] & ~twice[u];
+				if (hidden == 0)
+					continue;
+
+				int bit = hidden & -hidden;
+				for (int cell : rules.units[u]) {
+					if (cells[cell] == 0 && (candidates[cell] & bit) != 0) {
+						for (int i = depth; i < emptyCount; i++) {
+							if (empty[i] == cell) {
+								best = i;
+								break;
+							}
+						}
+						break;
+					}
+				}
+				bestMask = bit;
+				bestCount = 1;
+				break;
+			}
+		}
+		if (bestCount > 1 && ++guesses > guessLimit) {
+			aborted = true;
+			return;
+		}
+
+		int cell = empty[best];
+		empty[best] = empty[depth];
+		empty[depth] = cell;
+
+		int[] units = rules.cellUnits[cell];
+		while (bestMask != 0) {
+			if (nodes >= nodeLimit || ((nodes & STOP_CHECK_MASK) == 0 && isStopped())) {
+				aborted = true;
+				break;
+			}
+			int bit = pickDigit(bestMask);
+			bestMask ^= bit;
+			nodes++;
+
+			int value = Integer.numberOfTrailingZeros(bit) + 1;
+			for (int u : units)
+				place(u, bit, value);
+			cells[cell] = value;
+
+			search(depth + 1);
+
+			for (int u : units) {
+				used[u] ^= bit;
+				sums[u] -= value;
+				left[u]++;
+			}
+
+			if (solutions >= limit || aborted)
+				break;
+		}
+		cells[cell] = 0;
+	}
+
+	// Determine if the deadline has passed or the stop flag was set.
+	private boolean isStopped () {
+		return (stop != null && stop.get()) || (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0);
+	}
+
+	// Record a digit placed in a unit.
+	private void place (int unit, int bit, int value) {
+		used[unit] |= bit;
+		sums[unit] += value;
+		left[unit]--;
+	}
+
+	// Get the mask of digits an empty cell could hold: those it allows, missing from its units,
+	// and within the range each of its cages can still reach with distinct digits.
+	private int getCandidates (int cell) {
+		int mask = rules.cellMasks[cell];
+		for (int u : rules.cellUnits[cell]) {
+			mask &= ~used[u];
+			int sum = rules.sums[u];
+			if (sum == 0)
+				continue;
+
+			// The other empty cells of the cage need at least 1 + 2 + ... and at most n + (n - 1) + ...
+			int rest = sum - sums[u], others = left[u] - 1;
+			int low = rest - ((others * ((2 * size) - others + 1)) / 2);
+			int high = rest - ((others * (others + 1)) / 2);
+			if (high < 1 || low > size)
+				return 0;
+			if (low > 1)
+				mask &= ~((1 << (low - 1)) - 1);
+			if (high < size)
+				mask &= (1 << high) - 1;
+		}
+		return mask;
+	}
+
+	// Choose the next digit to try from a mask, the lowest unless a random order was requested.
+	private int pickDigit (int mask) {
+		if (random == null)
+			return mask & -mask;
+		for (int skip = random.nextInt(Integer.bitCount(mask)); skip > 0; skip--)
+			mask &= mask - 1;
+		return mask & -mask;
+	}
+
+	// Copy the first solution found by the last search into a grid.
+	public void getSolution (int[] grid) {
+		System.arraycopy(solution, 0, grid, 0, cellCount);
+	}
+
+	// Get the rules of the grids this solver handles.
+	public RuleSet getRules () {
+		return rules;
+	}
+
+	// Get the number of solutions found by the last search, capped at its limit.
+	public int getSolutionCount () {
+		return solutions;
+	}
+
+	// Determine if the last search gave up because a budget ran out.
+	public boolean isAborted () {
+		return aborted;
+	}
+
+	// Get the number of digits tried during the last search.
+	public long getNodeCount () {
+		return nodes;
+	}
+
+	// Get the number of cells with more than one candidate branched on during the last search.
+	public long getGuessCount () {
+		return guesses;
+	}
+}
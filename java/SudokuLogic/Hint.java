@@ -0,0 +1,56 @@
+package SudokuLogic;
+
+// Suggestion for the player's next move: a cell and the digit that belongs there, with the
+// hardest technique needed to find it, or with no technique if it came from the solution
+// because the player made a mistake there or logic alone could not find the next cell.
+public final class Hint
+{
+	private final int cell;
+	private final int digit;
+	private final Technique technique;	// Hardest technique needed, or null if taken from the solution.
+	private final boolean mistake;		// Whether the cell currently holds a wrong digit.
+
+	// Constructor.
+	public Hint (int cell, int digit, Technique technique, boolean mistake) {
+		this.cell = cell;
+		this.digit = digit;
+		this.technique = technique;
+		this.mistake = mistake;
+	}
+
+	// Get the index of the cell, row by row.
+	public int getCell () {
+		return cell;
+	}
+
+	// Get the row of the cell.
+	public int getRow () {
+		return cell / 9;
+	}
+
+	// Get the column of the cell.
+	public int getColumn () {
+		return cell % 9;
+	}
+
+	// Get the digit that belongs in the cell.
+	public int getDigit () {
+		return digit;
+	}
+
+	// Get the hardest technique needed to find the digit, or null if it came from the solution.
+	public Technique getTechnique () {
+		return technique;
+	}
+
+	// Determine if the cell currently holds a wrong digit to be replaced.
+	public boolean isMistake () {
+		return mistake;
+	}
+
+	// Return the hint as a short description, such as "r3c5 = 7 (HIDDEN_SINGLE)".
+	public String toString () {
+		return "r" + (getRow() + 1) + "c" + (getColumn() + 1) + " = " + digit
+			+ (mistake ? " (mistake)" : technique == null ? " (solution)" : " (" + technique + ")");
+	}
+}
@@ -0,0 +1,133 @@
+package SudokuLogic;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Named histogram of latencies in nanoseconds, recorded without locks. Values below 16 have
+// a bucket each, and every larger power of two is split into eight buckets, so a reported
+// percentile is within 12.5% of the true value while the whole range of a long fits in 488
+// buckets. Each bucket is an atomic counter, so threads recording at the same time never
+// block each other, and a snapshot taken meanwhile is only off by the values in flight.
+public final class Histogram
+{
+	private static final int SUB_BUCKETS = 8;	// Buckets for each power of two above 16.
+	private static final int LINEAR = 16;		// Values with a bucket of their own.
+	private static final int BUCKETS = LINEAR + ((63 - 4) * SUB_BUCKETS);
+
+	private final String name;
+	private final AtomicLongArray counts;	// Number of values recorded in each bucket.
+	private final AtomicLong count;			// Number of values recorded.
+	private final AtomicLong total;			// Sum of the values recorded.
+	private final AtomicLong max;			// Largest value recorded.
+
+	// Constructor.
+	public Histogram (String name) {
+		this.name = name;
+		counts = new AtomicLongArray(BUCKETS);
+		count = new AtomicLong();
+		total = new AtomicLong();
+		max = new AtomicLong();
+	}
+
+	// Record the time elapsed since a start returned by Metrics.start, unless that start was
+	// taken while metrics were disabled.
+	public void recordSince (long start) {
+		if (start != Metrics.DISABLED)
+			record(System.nanoTime() - start);
+	}
+
+	// Record a value, clamping negative values to zero.
+	public void record (long value) {
+		if (value < 0)
+			value = 0;
+		counts.incrementAndGet(getBucket(value));
+		count.incrementAndGet();
+		total.addAndGet(value);
+		long current;
+		while (value > (current = max.get()) && !max.compareAndSet(current, value));
+	}
+
+	// Get the bucket holding a value.
+	private static int getBucket (long value) {
+		if (value < LINEAR)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		return LINEAR + ((exponent - 4) * SUB_BUCKETS) + (int) ((value >>> (exponent - 3)) & (SUB_BUCKETS - 1));
+	}
+
+	// Get the largest value a bucket can hold.
+	private static long getUpperBound (int bucket) {
+		if (bucket < LINEAR)
+			return bucket;
+		int exponent = ((bucket - LINEAR) / SUB_BUCKETS) + 4;
+		long sub = SUB_BUCKETS + ((bucket - LINEAR) % SUB_BUCKETS);
+		return ((sub + 1) << (exponent - 3)) - 1;
+	}
+
+	// Get the number of values recorded.
+	public long getCount () {
+		return count.get();
+	}
+
+	// Get the sum of the values recorded.
+	public long getTotal () {
+		return total.get();
+	}
+
+	// Get the largest value recorded, or zero if none.
+	public long getMax () {
+		return max.get();
+	}
+
+	// Get the mean of the values recorded, or zero if none.
+	public double getMean () {
+		long n = count.get();
+		return n == 0 ? 0 : (double) total.get() / n;
+	}
+
+	// Get an upper bound of the value below which the given percentage of the values fall,
+	// or zero if none were recorded.
+	public long getPercentile (double percent) {
+		return getPercentiles(percent)[0];
+	}
+
+	// Get the percentiles of several percentages from a single pass over the buckets.
+	public long[] getPercentiles (double... percents) {
+		long[] snapshot = new long[BUCKETS];
+		long n = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			n += snapshot[i] = counts.get(i);
+		long largest = max.get();
+
+		long[] values = new long[percents.length];
+		if (n == 0)
+			return values;
+		for (int p = 0; p < percents.length; p++) {
+			long rank = Math.max(1, (long) Math.ceil((percents[p] / 100) * n));
+			long seen = 0;
+			values[p] = largest;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += snapshot[i];
+				if (seen >= rank) {
+					values[p] = Math.min(getUpperBound(i), largest);
+					break;
+				}
+			}
+		}
+		return values;
+	}
+
+	// Clear every value recorded.
+	public void reset () {
+		for (int i = 0; i < BUCKETS; i++)
+			counts.set(i, 0);
+		count.set(0);
+		total.set(0);
+		max.set(0);
+	}
+
+	// Get the name of the histogram.
+	public String getName () {
+		return name;
+	}
+}
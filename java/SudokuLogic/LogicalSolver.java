@@ -0,0 +1,459 @@
+package SudokuLogic;
+
+import java.util.Arrays;
+
+// Solver that only applies human techniques to per-cell candidate masks, always taking
+// the easiest step available, and records each step to grade the puzzle's difficulty.
+// Steps are packed into ints and every array is reused, so solving a puzzle allocates
+// nothing once the trace has grown. Instances are not thread-safe; use one per thread.
+public class LogicalSolver
+{
+	private static final Technique[] TECHNIQUES = Technique.values();
+
+	// Cells of the 27 units: rows, then columns, then sub-grids.
+	static final int[][] UNITS = Geometry.CLASSIC.units;
+
+	// The 20 cells sharing a row, column or sub-grid with each cell.
+	static final int[][] PEERS = Geometry.CLASSIC.peers;
+
+	// Working state.
+	private final int[] cells;			// Current digit of each cell, or zero if empty.
+	private final int[] candidates;		// Candidate mask of each empty cell, or zero if filled.
+	private final int[] positions;		// Scratch mask of positions within a unit for each digit.
+	private int remaining;				// Number of empty cells.
+	private boolean broken;				// Whether a cell or unit was left without candidates.
+
+	// Trace of the steps taken, packed as technique, digit, cell and candidates removed.
+	private int[] steps;
+	private int stepCount;
+	private int score;
+	private int hardest;	// Ordinal of the hardest technique used, or -1 if none.
+
+	// Constructor.
+	public LogicalSolver () {
+		cells = new int[81];
+		candidates = new int[81];
+		positions = new int[9];
+		steps = new int[64];
+	}
+
+	// Load a puzzle from a packed grid, clearing the trace.
+	public void load (PackedGrid grid) {
+		for (int i = 0; i < 81; i++)
+			cells[i] = grid.get(i);
+		reset();
+	}
+
+	// Load a puzzle from a grid of 81 cells, clearing the trace.
+	public void load (int[] grid) {
+		System.arraycopy(grid, 0, cells, 0, 81);
+		reset();
+	}
+
+	// Compute the candidates of every empty cell from its row, column and sub-grid.
+	private void reset () {
+		stepCount = 0;
+		score = 0;
+		hardest = -1;
+		broken = false;
+		remaining = 0;
+
+		for (int i = 0; i < 81; i++) {
+			if (cells[i] != 0) {
+				candidates[i] = 0;
+				continue;
+			}
+
+			int mask = Constraints.ALL_DIGITS;
+			for (int peer : PEERS[i]) {
+				if (cells[peer] != 0)
+					mask &= ~(1 << (cells[peer] - 1));
+			}
+			candidates[i] = mask;
+			remaining++;
+			if (mask == 0)
+				broken = true;
+		}
+
+		for (int i = 0; i < 81 && !broken; i++) {
+			if (cells[i] == 0)
+				continue;
+			for (int peer : PEERS[i]) {
+				if (cells[peer] == cells[i])
+					broken = true;
+			}
+		}
+	}
+
+	// Solve a puzzle from a packed grid as far as the techniques allow.
+	public boolean solve (PackedGrid grid) {
+		load(grid);
+		return solve();
+	}
+
+	// Take steps until the puzzle is solved or no technique applies, returning true if solved.
+	public boolean solve () {
+		long start = Metrics.start();
+		while (step());
+		Metrics.GRADING.recordSince(start);
+		return isSolved();
+	}
+
+	// Take the easiest step available, returning false if none applies.
+	public boolean step () {
+		if (broken || remaining == 0)
+			return false;
+		return nakedSingle() || hiddenSingle() || pointing() || claiming()
+			|| nakedPair() || xWing() || hiddenPair();
+	}
+
+	// Place the only candidate of a cell.
+	private boolean nakedSingle () {
+		for (int i = 0; i < 81; i++) {
+			int mask = candidates[i];
+			if (mask != 0 && (mask & (mask - 1)) == 0) {
+				int digit = Integer.numberOfTrailingZeros(mask) + 1;
+				place(i, digit);
+				record(Technique.NAKED_SINGLE, i, digit, 0);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Place a digit that has only one candidate cell within a unit, checking sub-grids first.
+	// A digit neither placed in a unit nor a candidate of any of its cells breaks the puzzle.
+	private boolean hiddenSingle () {
+		for (int k = 0; k < 27; k++) {
+			int[] unit = UNITS[(k + 18) % 27];
+			int once = 0, twice = 0, placed = 0;
+			for (int cell : unit) {
+				twice |= once & candidates[cell];
+				once |= candidates[cell];
+				if (cells[cell] != 0)
+					placed |= 1 << (cells[cell] - 1);
+			}
+			if ((once | placed) != Constraints.ALL_DIGITS) {
+				broken = true;
+				return false;
+			}
+
+			int hidden = once & ~twice;
+			if (hidden == 0)
+				continue;
+
+			int bit = hidden & -hidden;
+			for (int cell : unit) {
+				if ((candidates[cell] & bit) != 0) {
+					int digit = Integer.numberOfTrailingZeros(bit) + 1;
+					place(cell, digit);
+					record(Technique.HIDDEN_SINGLE, cell, digit, 0);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// Remove a digit from a row or column when its candidates in a sub-grid all lie on that line.
+	private boolean pointing () {
+		for (int box = 0; box < 9; box++) {
+			for (int digit = 1; digit <= 9; digit++) {
+				int bit = 1 << (digit - 1);
+				int rows = 0, columns = 0;
+				for (int cell : UNITS[18 + box]) {
+					if ((candidates[cell] & bit) != 0) {
+						rows |= 1 << Solver.ROW[cell];
+						columns |= 1 << Solver.COLUMN[cell];
+					}
+				}
+
+				int line = -1;
+				if (rows != 0 && (rows & (rows - 1)) == 0)
+					line = Integer.numberOfTrailingZeros(rows);
+				else if (columns != 0 && (columns & (columns - 1)) == 0)
+					line = 9 + Integer.numberOfTrailingZeros(columns);
+				if (line < 0)
+					continue;
+
+				int removed = 0, first = -1;
+				for (int cell : UNITS[line]) {
+					if (Solver.BOX[cell] != box && (candidates[cell] & bit) != 0) {
+						removed += eliminate(cell, bit);
+						if (first < 0)
+							first = cell;
+					}
+				}
+				if (removed > 0) {
+					record(Technique.POINTING, first, digit, removed);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// Remove a digit from a sub-grid when its candidates in a row or column all lie in that sub-grid.
+	private boolean claiming () {
+		for (int line = 0; line < 18; line++) {
+			for (int digit = 1; digit <= 9; digit++) {
+				int bit = 1 << (digit - 1);
+				int boxes = 0;
+				for (int cell : UNITS[line]) {
+					if ((candidates[cell] & bit) != 0)
+						boxes |= 1 << Solver.BOX[cell];
+				}
+				if (boxes == 0 || (boxes & (boxes - 1)) != 0)
+					continue;
+
+				int removed = 0, first = -1;
+				for (int cell : UNITS[18 + Integer.numberOfTrailingZeros(boxes)]) {
+					if (!isInUnit(cell, line) && (candidates[cell] & bit) != 0) {
+						removed += eliminate(cell, bit);
+						if (first < 0)
+							first = cell;
+					}
+				}
+				if (removed > 0) {
+					record(Technique.CLAIMING, first, digit, removed);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// Remove two digits from a unit when two of its cells can only hold those two digits.
+	private boolean nakedPair () {
+		for (int[] unit : UNITS) {
+			for (int i = 0; i < 9; i++) {
+				int mask = candidates[unit[i]];
+				if (Integer.bitCount(mask) != 2)
+					continue;
+
+				for (int j = i + 1; j < 9; j++) {
+					if (candidates[unit[j]] != mask)
+						continue;
+
+					int removed = 0;
+					for (int k = 0; k < 9; k++) {
+						if (k != i && k != j)
+							removed += eliminate(unit[k], mask);
+					}
+					if (removed > 0) {
+						record(Technique.NAKED_PAIR, unit[i], 0, removed);
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	// Remove a digit from two columns when it is confined to those columns in two rows,
+	// or from two rows when it is confined to those rows in two columns.
+	private boolean xWing () {
+		for (int base = 0; base <= 9; base += 9) {
+			int cover = 9 - base; // Units crossing the base units: columns for rows and rows for columns.
+			for (int digit = 1; digit <= 9; digit++) {
+				int bit = 1 << (digit - 1);
+				for (int i = 0; i < 9; i++) {
+					int mask = 0;
+					int[] unit = UNITS[base + i];
+					for (int k = 0; k < 9; k++) {
+						if ((candidates[unit[k]] & bit) != 0)
+							mask |= 1 << k;
+					}
+					positions[i] = mask;
+				}
+
+				for (int i = 0; i < 9; i++) {
+					if (Integer.bitCount(positions[i]) != 2)
+						continue;
+					for (int j = i + 1; j < 9; j++) {
+						if (positions[j] != positions[i])
+							continue;
+
+						int removed = 0;
+						for (int lines = positions[i]; lines != 0; lines &= lines - 1) {
+							int[] line = UNITS[cover + Integer.numberOfTrailingZeros(lines)];
+							for (int k = 0; k < 9; k++) {
+								if (k != i && k != j)
+									removed += eliminate(line[k], bit);
+							}
+						}
+						if (removed > 0) {
+							record(Technique.X_WING, UNITS[base + i][Integer.numberOfTrailingZeros(positions[i])],
+								digit, removed);
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	// Remove the other candidates of two cells when two digits of a unit can only go in them.
+	private boolean hiddenPair () {
+		for (int[] unit : UNITS) {
+			for (int digit = 0; digit < 9; digit++) {
+				int mask = 0;
+				for (int k = 0; k < 9; k++) {
+					if ((candidates[unit[k]] & (1 << digit)) != 0)
+						mask |= 1 << k;
+				}
+				positions[digit] = mask;
+			}
+
+			for (int d1 = 0; d1 < 9; d1++) {
+				if (Integer.bitCount(positions[d1]) != 2)
+					continue;
+				for (int d2 = d1 + 1; d2 < 9; d2++) {
+					if (positions[d2] != positions[d1])
+						continue;
+
+					int keep = (1 << d1) | (1 << d2);
+					int removed = 0, first = -1;
+					for (int cells = positions[d1]; cells != 0; cells &= cells - 1) {
+						int cell = unit[Integer.numberOfTrailingZeros(cells)];
+						removed += eliminate(cell, candidates[cell] & ~keep);
+						if (first < 0)
+							first = cell;
+					}
+					if (removed > 0) {
+						record(Technique.HIDDEN_PAIR, first, 0, removed);
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	// Place a digit in a cell and remove it from the candidates of the cell's peers.
+	private void place (int cell, int digit) {
+		int bit = 1 << (digit - 1);
+		cells[cell] = digit;
+		candidates[cell] = 0;
+		remaining--;
+		for (int peer : PEERS[cell]) {
+			if (cells[peer] == 0)
+				eliminate(peer, bit);
+		}
+	}
+
+	// Remove candidates from a cell, returning how many were removed.
+	private int eliminate (int cell, int mask) {
+		int removed = candidates[cell] & mask;
+		if (removed == 0)
+			return 0;
+
+		candidates[cell] ^= removed;
+		if (candidates[cell] == 0)
+			broken = true;
+		return Integer.bitCount(removed);
+	}
+
+	// Determine if a cell belongs to the given unit.
+	private static boolean isInUnit (int cell, int unit) {
+		if (unit < 9)
+			return Solver.ROW[cell] == unit;
+		if (unit < 18)
+			return Solver.COLUMN[cell] == unit - 9;
+		return Solver.BOX[cell] == unit - 18;
+	}
+
+	// Append a step to the trace and add its weight to the score.
+	private void record (Technique technique, int cell, int digit, int removed) {
+		if (stepCount == steps.length)
+			steps = Arrays.copyOf(steps, stepCount * 2);
+		steps[stepCount++] = technique.ordinal() | (digit << 4) | (cell << 8) | (removed << 16);
+		score += technique.getWeight();
+		hardest = Math.max(hardest, technique.ordinal());
+	}
+
+	// Determine if every cell has been filled.
+	public boolean isSolved () {
+		return remaining == 0 && !broken;
+	}
+
+	// Determine if a contradiction was found, so the puzzle has no solution.
+	public boolean isBroken () {
+		return broken;
+	}
+
+	// Get the digit of a cell after the steps taken so far, or zero if it is still empty.
+	public int getCell (int cell) {
+		return cells[cell];
+	}
+
+	// Get the candidate mask of a cell after the steps taken so far, or zero if it is filled.
+	public int getCandidates (int cell) {
+		return candidates[cell];
+	}
+
+	// Get the number of steps taken.
+	public int getStepCount () {
+		return stepCount;
+	}
+
+	// Get the technique used by a step.
+	public Technique getStepTechnique (int step) {
+		return TECHNIQUES[steps[step] & 0xF];
+	}
+
+	// Get the digit placed or removed by a step, or zero for a pair of digits.
+	public int getStepDigit (int step) {
+		return (steps[step] >>> 4) & 0xF;
+	}
+
+	// Get the cell filled by a step, or the first cell it removed candidates from.
+	public int getStepCell (int step) {
+		return (steps[step] >>> 8) & 0xFF;
+	}
+
+	// Get the number of candidates removed by a step, or zero if it placed a digit.
+	public int getStepRemoved (int step) {
+		return steps[step] >>> 16;
+	}
+
+	// Get the sum of the weights of every step taken.
+	public int getScore () {
+		return score;
+	}
+
+	// Get the hardest technique used, or null if no step was taken.
+	public Technique getHardestTechnique () {
+		return hardest < 0 ? null : TECHNIQUES[hardest];
+	}
+
+	// Grade the puzzle by the hardest technique it needed: singles only for EASY, up to
+	// naked pairs for MEDIUM, and anything harder or left unsolved for HARD.
+	public Difficulty grade () {
+		if (!isSolved() || hardest > Technique.NAKED_PAIR.ordinal())
+			return Difficulty.HARD;
+		if (hardest > Technique.HIDDEN_SINGLE.ordinal())
+			return Difficulty.MEDIUM;
+		return Difficulty.EASY;
+	}
+
+	// Return the steps taken, one per line.
+	public String toTraceString () {
+		StringBuilder s = new StringBuilder();
+		for (int i = 0; i < stepCount; i++) {
+			int cell = getStepCell(i);
+			s.append(getStepTechnique(i)).append(": ");
+			if (getStepRemoved(i) == 0)
+				s.append('r').append((cell / 9) + 1).append('c').append((cell % 9) + 1).append(" = ").append(getStepDigit(i));
+			else {
+				if (getStepDigit(i) != 0)
+					s.append(getStepDigit(i)).append(' ');
+				s.append("removed ").append(getStepRemoved(i)).append(" candidates from r")
+					.append((cell / 9) + 1).append('c').append((cell % 9) + 1);
+			}
+			s.append('\n');
+		}
+		return s.toString();
+	}
+}
@@ -0,0 +1,124 @@
+package SudokuLogic;
+
+import java.io.IOException;
+import java.util.Locale;
+
+// Counters and latency histograms for the hot paths of the engine, switched on and off at
+// runtime and disabled by default. While disabled, start returns DISABLED without reading
+// the clock and every counter and histogram returns after reading one volatile flag, so
+// the instrumentation costs next to nothing. Snapshots are exported as text, one metric
+// per line, or as a single JSON object for tools to scrape.
+public final class Metrics
+{
+	public static final long DISABLED = Long.MIN_VALUE; // Start returned while disabled.
+
+	// Percentiles reported for each histogram.
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+	private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+	static volatile boolean enabled;
+
+	// Latencies in nanoseconds.
+	public static final Histogram GENERATION = new Histogram("generation");			// Generating a 9 by 9 board.
+	public static final Histogram GRID_GENERATION = new Histogram("grid_generation");	// Generating a board of any geometry.
+	public static final Histogram SOLVING = new Histogram("solving");				// One search of a backtracking solver.
+	public static final Histogram GRADING = new Histogram("grading");				// Solving a puzzle with human techniques.
+	public static final Histogram VALIDATION = new Histogram("validation");			// Checking if a board is complete.
+	public static final Histogram MOVES = new Histogram("moves");					// Applying a move of the player.
+	public static final Histogram TAKE = new Histogram("take");						// Taking a board from the factory.
+	public static final Histogram PERSISTENCE = new Histogram("persistence");		// Writing a game or puzzles to storage.
+
+	// Events.
+	public static final Counter POOL_MISSES = new Counter("pool_misses");	// Boards generated on the caller's thread.
+	public static final Counter DUPLICATES = new Counter("duplicates");		// Puzzles rejected as already produced.
+	public static final Counter UNDOS = new Counter("undos");				// Moves undone or redone.
+
+	private static final Histogram[] HISTOGRAMS = {
+		GENERATION, GRID_GENERATION, SOLVING, GRADING, VALIDATION, MOVES, TAKE, PERSISTENCE
+	};
+	private static final Counter[] COUNTERS = {POOL_MISSES, DUPLICATES, UNDOS};
+
+	private Metrics () {}
+
+	// Turn recording on or off.
+	public static void setEnabled (boolean enabled) {
+		Metrics.enabled = enabled;
+	}
+
+	// Determine if recording is on.
+	public static boolean isEnabled () {
+		return enabled;
+	}
+
+	// Get the start of an operation to pass to Histogram.recordSince, or DISABLED if recording is off.
+	public static long start () {
+		return enabled ? System.nanoTime() : DISABLED;
+	}
+
+	// Clear every counter and histogram.
+	public static void reset () {
+		for (Histogram histogram : HISTOGRAMS)
+			histogram.reset();
+		for (Counter counter : COUNTERS)
+			counter.reset();
+	}
+
+	// Write a snapshot as text, one line per metric, with latencies in nanoseconds.
+	public static void writeText (Appendable out) throws IOException {
+		for (Histogram histogram : HISTOGRAMS) {
+			long[] percentiles = histogram.getPercentiles(PERCENTILES);
+			out.append(histogram.getName()).append(" count=").append(Long.toString(histogram.getCount()))
+				.append(" mean=").append(String.format(Locale.US, "%.0f", histogram.getMean()));
+			for (int i = 0; i < percentiles.length; i++)
+				out.append(' ').append(PERCENTILE_NAMES[i]).append('=').append(Long.toString(percentiles[i]));
+			out.append(" max=").append(Long.toString(histogram.getMax())).append('\n');
+		}
+		for (Counter counter : COUNTERS)
+			out.append(counter.getName()).append(' ').append(Long.toString(counter.get())).append('\n');
+	}
+
+	// Write a snapshot as a JSON object holding an object per histogram and a number per counter.
+	public static void writeJson (Appendable out) throws IOException {
+		out.append("{\"enabled\":").append(Boolean.toString(enabled)).append(",\"histograms\":{");
+		for (int h = 0; h < HISTOGRAMS.length; h++) {
+			Histogram histogram = HISTOGRAMS[h];
+			long[] percentiles = histogram.getPercentiles(PERCENTILES);
+			if (h > 0)
+				out.append(',');
+			out.append('"').append(histogram.getName()).append("\":{\"count\":").append(Long.toString(histogram.getCount()))
+				.append(",\"mean\":").append(String.format(Locale.US, "%.1f", histogram.getMean()));
+			for (int i = 0; i < percentiles.length; i++)
+				out.append(",\"").append(PERCENTILE_NAMES[i]).append("\":").append(Long.toString(percentiles[i]));
+			out.append(",\"max\":").append(Long.toString(histogram.getMax())).append('}');
+		}
+		out.append("},\"counters\":{");
+		for (int c = 0; c < COUNTERS.length; c++) {
+			if (c > 0)
+				out.append(',');
+			out.append('"').append(COUNTERS[c].getName()).append("\":").append(Long.toString(COUNTERS[c].get()));
+		}
+		out.append("}}");
+	}
+
+	// Return a snapshot as text.
+	public static String toText () {
+		StringBuilder s = new StringBuilder(1024);
+		try {
+			writeText(s);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // A StringBuilder never throws.
+		}
+		return s.toString();
+	}
+
+	// Return a snapshot as JSON.
+	public static String toJson () {
+		StringBuilder s = new StringBuilder(1024);
+		try {
+			writeJson(s);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // A StringBuilder never throws.
+		}
+		return s.toString();
+	}
+}
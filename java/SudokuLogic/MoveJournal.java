@@ -0,0 +1,182 @@
+package SudokuLogic;
+
+// History of cell changes for undo and redo, each packed into one int holding the cell
+// index, the old value and the new value. The low bits are laid out for the classic grid and
+// the high bits of a larger grid's index and digits go above them, so journals saved from
+// 9 by 9 games read back unchanged. A move that cleared pencil marks is followed by a side
+// entry, flagged by its sign bit, holding the cell's old marks and which of its peers lost
+// the placed digit, so that undo can put them back; only a 9 by 9 cell's marks and peers fit
+// in one. Entries are kept in a ring buffer that grows up to a maximum capacity, after which
+// the oldest moves are forgotten.
+public class MoveJournal
+{
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int DEFAULT_MAXIMUM = 1 << 16;
+
+	private final int maximum;	// Largest capacity the buffer may grow to, a power of two.
+	private int[] moves;		// Ring buffer of packed moves and side entries, its length a power of two.
+	private int head;			// Buffer index of the oldest move.
+	private int size;			// Number of entries recorded, including those undone.
+	private int position;		// Number of entries currently applied.
+	private int undoneNotes;	// Side entry of the move last undone, or zero if it had none.
+
+	// Constructor.
+	public MoveJournal () {
+		this(DEFAULT_MAXIMUM);
+	}
+
+	// Constructor with a maximum number of moves, rounded up to a power of two.
+	public MoveJournal (int maximum) {
+		this.maximum = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, maximum - 1)) << 1);
+		moves = new int[INITIAL_CAPACITY];
+	}
+
+	// Constructor restoring a journal from the array returned by toArray.
+	public MoveJournal (int[] state) {
+		this(DEFAULT_MAXIMUM);
+		for (int i = 1; i < state.length; i++)
+			add(state[i]);
+		position = Math.min(Math.max(state.length > 0 ? state[0] : 0, 0), size);
+	}
+
+	// Pack a move into an int, for a cell index below 1024 and digits up to 31.
+	public static int encode (int cell, int oldValue, int newValue) {
+		return (cell & 0x7F) | ((oldValue & 0xF) << 7) | ((newValue & 0xF) << 11)
+			| ((cell & 0x380) << 8) | ((oldValue & 0x10) << 14) | ((newValue & 0x10) << 15);
+	}
+
+	// Get the cell index of a packed move.
+	public static int getCell (int move) {
+		return (move & 0x7F) | ((move >>> 8) & 0x380);
+	}
+
+	// Get the value a packed move replaced.
+	public static int getOldValue (int move) {
+		return ((move >>> 7) & 0xF) | ((move >>> 14) & 0x10);
+	}
+
+	// Get the value a packed move placed.
+	public static int getNewValue (int move) {
+		return ((move >>> 11) & 0xF) | ((move >>> 15) & 0x10);
+	}
+
+	// Pack the pencil marks cleared by a move into a side entry: the old marks of the cell and
+	// a mask over LogicalSolver.PEERS of the cell of the peers that lost the placed digit.
+	public static int encodeNotes (int cellNotes, int peers) {
+		return 0x80000000 | (peers << 9) | cellNotes;
+	}
+
+	// Determine if an entry is the side entry of a move rather than a move.
+	public static boolean isNotes (int entry) {
+		return entry < 0;
+	}
+
+	// Get the old pencil marks of the cell of a side entry.
+	public static int getCellNotes (int entry) {
+		return entry & 0x1FF;
+	}
+
+	// Get the mask of the peers that lost the placed digit of a side entry.
+	public static int getPeerNotes (int entry) {
+		return (entry >>> 9) & 0xFFFFF;
+	}
+
+	// Record a move, discarding any moves that were undone.
+	public void record (int cell, int oldValue, int newValue) {
+		record(cell, oldValue, newValue, 0, 0);
+	}
+
+	// Record a move together with the pencil marks it cleared, discarding any moves that were undone.
+	public void record (int cell, int oldValue, int newValue, int cellNotes, int peers) {
+		size = position;
+		add(encode(cell, oldValue, newValue));
+		if (cellNotes != 0 || peers != 0)
+			add(encodeNotes(cellNotes, peers));
+		position = size;
+	}
+
+	// Append a packed entry, growing the buffer or forgetting the oldest move when full.
+	private void add (int entry) {
+		if (size == moves.length) {
+			if (moves.length < maximum)
+				grow();
+			else {
+				// Forget the oldest move along with its side entry.
+				do {
+					head = (head + 1) & (moves.length - 1);
+					size--;
+					position = Math.max(0, position - 1);
+				} while (size > 0 && isNotes(moves[head]));
+			}
+		}
+		moves[(head + size) & (moves.length - 1)] = entry;
+		size++;
+	}
+
+	// Double the buffer, moving the oldest move to the front.
+	private void grow () {
+		int[] larger = new int[moves.length * 2];
+		for (int i = 0; i < size; i++)
+			larger[i] = moves[(head + i) & (moves.length - 1)];
+		moves = larger;
+		head = 0;
+	}
+
+	// Determine if there is a move to undo.
+	public boolean canUndo () {
+		return position > 0;
+	}
+
+	// Step back over the last applied move and its side entry and return the move, which must exist.
+	public int undo () {
+		int entry = moves[(head + --position) & (moves.length - 1)];
+		undoneNotes = 0;
+		if (isNotes(entry)) {
+			undoneNotes = entry;
+			entry = moves[(head + --position) & (moves.length - 1)];
+		}
+		return entry;
+	}
+
+	// Get the side entry of the move last undone, or zero if it cleared no pencil marks.
+	public int getUndoneNotes () {
+		return undoneNotes;
+	}
+
+	// Determine if there is an undone move to redo.
+	public boolean canRedo () {
+		return position < size;
+	}
+
+	// Step forward over the next undone move and its side entry and return the move, which must exist.
+	public int redo () {
+		int move = moves[(head + position++) & (moves.length - 1)];
+		if (position < size && isNotes(get(position)))
+			position++;
+		return move;
+	}
+
+	// Get the number of entries recorded, including those undone.
+	public int size () {
+		return size;
+	}
+
+	// Get the number of entries currently applied.
+	public int getPosition () {
+		return position;
+	}
+
+	// Get a packed move or side entry by its order, oldest first.
+	public int get (int index) {
+		return moves[(head + index) & (moves.length - 1)];
+	}
+
+	// Get the position followed by every packed entry, oldest first.
+	public int[] toArray () {
+		int[] state = new int[size + 1];
+		state[0] = position;
+		for (int i = 0; i < size; i++)
+			state[i + 1] = get(i);
+		return state;
+	}
+}
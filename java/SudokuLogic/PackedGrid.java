@@ -0,0 +1,95 @@
+package SudokuLogic;
+
+import java.util.Arrays;
+
+// Grid of 81 cells packed four bits per cell into six longs, indexed row by row.
+// A value of zero denotes an empty cell.
+public final class PackedGrid
+{
+	public static final int WORDS = 6; // Number of longs holding the 81 cells.
+
+	private final long[] words; // Sixteen cells per long, lowest nibble first.
+
+	// Constructor for an empty grid.
+	public PackedGrid () {
+		words = new long[WORDS];
+	}
+
+	// Constructor copying another grid.
+	public PackedGrid (PackedGrid other) {
+		words = other.words.clone();
+	}
+
+	// Constructor from the words of a packed grid, such as those returned by getWords.
+	public PackedGrid (long[] words) {
+		this.words = Arrays.copyOf(words, WORDS);
+	}
+
+	// Constructor from a two-dimensional array of integers.
+	public PackedGrid (int[][] values) {
+		this();
+		for (int i = 0; i < 81; i++)
+			set(i, values[i / 9][i % 9]);
+	}
+
+	// Get the value of a cell by its index.
+	public int get (int cell) {
+		return (int) (words[cell >>> 4] >>> ((cell & 15) << 2)) & 0xF;
+	}
+
+	// Get the value of a cell by its row and column.
+	public int get (int row, int column) {
+		return get((row * 9) + column);
+	}
+
+	// Set the value of a cell by its index.
+	public void set (int cell, int value) {
+		int shift = (cell & 15) << 2;
+		words[cell >>> 4] = (words[cell >>> 4] & ~(0xFL << shift)) | ((long) value << shift);
+	}
+
+	// Set the value of a cell by its row and column.
+	public void set (int row, int column, int value) {
+		set((row * 9) + column, value);
+	}
+
+	// Overwrite this grid with the contents of another.
+	public void copyFrom (PackedGrid other) {
+		System.arraycopy(other.words, 0, words, 0, WORDS);
+	}
+
+	// Get a copy of the words holding the packed cells.
+	public long[] getWords () {
+		return words.clone();
+	}
+
+	// Copy the cells into a grid of 81 integers.
+	public void toArray (int[] values) {
+		for (int i = 0; i < 81; i++)
+			values[i] = get(i);
+	}
+
+	// Copy the cells into a two-dimensional array of integers.
+	public void toArray (int[][] values) {
+		for (int i = 0; i < 81; i++)
+			values[i / 9][i % 9] = get(i);
+	}
+
+	// Get the number of non-empty cells.
+	public int getFilledCount () {
+		int count = 0;
+		for (int i = 0; i < 81; i++) {
+			if (get(i) != 0)
+				count++;
+		}
+		return count;
+	}
+
+	public boolean equals (Object o) {
+		return o instanceof PackedGrid && Arrays.equals(words, ((PackedGrid) o).words);
+	}
+
+	public int hashCode () {
+		return Arrays.hashCode(words);
+	}
+}
@@ -0,0 +1,255 @@
+package SudokuLogic;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Solver that splits the search of any rule set across a ForkJoinPool, for the puzzles that
+// keep a single thread busy for seconds: minimal 9 by 9 puzzles, adversarial imports and the
+// larger grids. The first few branch points of the search tree, where a cell has more than
+// one candidate, become one task per digit, so idle workers steal whole subtrees, and below
+// that depth each task finishes its subtree with a GridSolver of its worker thread. Once the
+// solutions found reach the limit, or the deadline passes, a shared flag stops every task.
+// Instances are not thread-safe; use one per calling thread.
+public class ParallelSolver
+{
+	private final RuleSet rules;
+	private final ForkJoinPool pool;
+	private final int splitDepth;	// Branch points split into tasks, more with more workers.
+
+	// Sequential solver of each worker thread, created on first use.
+	private final ThreadLocal<GridSolver> solvers = new ThreadLocal<GridSolver>() {
+		protected GridSolver initialValue () {
+			return new GridSolver(rules);
+		}
+	};
+
+	// Results of the last search.
+	private int solutions;		// Number of solutions found, never more than the limit.
+	private int[] solution;		// A solution found by the last search, or null if none.
+	private long nodes;			// Number of digits tried by all the tasks.
+	private boolean aborted;	// Whether the deadline passed before the search finished.
+
+	// Constructor for the plain rules of a grid of the given geometry, using the common pool.
+	public ParallelSolver (Geometry geometry) {
+		this(RuleSet.standard(geometry), ForkJoinPool.commonPool());
+	}
+
+	// Constructor for a grid following the given rules, using the common pool.
+	public ParallelSolver (RuleSet rules) {
+		this(rules, ForkJoinPool.commonPool());
+	}
+
+	// Constructor for a grid following the given rules, searching on a specific pool.
+	public ParallelSolver (RuleSet rules, ForkJoinPool pool) {
+		this.rules = rules;
+		this.pool = pool;
+		splitDepth = 34 - Integer.numberOfLeadingZeros(pool.getParallelism());
+	}
+
+	// Solve the given grid in place, returning false if it has no solution.
+	public boolean solve (int[] grid) {
+		return solve(grid, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	// Solve the given grid in place, returning false if it has no solution or the timeout passed first.
+	public boolean solve (int[] grid, long timeout, TimeUnit unit) {
+		if (countSolutions(grid, 1, timeout, unit) == 0)
+			return false;
+		System.arraycopy(solution, 0, grid, 0, solution.length);
+		return true;
+	}
+
+	// Determine if the given grid has exactly one solution, which is only known if the search
+	// finished before the timeout.
+	public boolean hasUniqueSolution (int[] grid, long timeout, TimeUnit unit) {
+		return countSolutions(grid, 2, timeout, unit) == 1 && !aborted;
+	}
+
+	// Count the solutions of a grid, stopping once the limit is reached.
+	public int countSolutions (int[] grid, int limit) {
+		return countSolutions(grid, limit, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	// Count the solutions of a grid, stopping once the limit is reached or the timeout passes,
+	// where a timeout of Long.MAX_VALUE means none.
+	public int countSolutions (int[] grid, int limit, long timeout, TimeUnit unit) {
+		if (grid.length != rules.cellCount)
+			throw new IllegalArgumentException("A " + rules.geometry + " grid has " + rules.cellCount + " cells.");
+
+		long deadline = Long.MAX_VALUE;
+		if (timeout != Long.MAX_VALUE) {
+			deadline = System.nanoTime() + Math.min(unit.toNanos(timeout), Long.MAX_VALUE / 2);
+			if (deadline == Long.MAX_VALUE)
+				deadline--; // Keep the deadline from reading as none.
+		}
+
+		Search search = new Search(limit, deadline);
+		if (limit > 0)
+			pool.invoke(new SplitTask(search, grid.clone(), 0));
+
+		solutions = Math.min(search.found.get(), Math.max(limit, 0));
+		solution = search.first.get();
+		nodes = search.nodes.get();
+		aborted = solutions < limit && search.stop.get();
+		return solutions;
+	}
+
+	// Copy a solution found by the last search into a grid.
+	public void getSolution (int[] grid) {
+		System.arraycopy(solution, 0, grid, 0, solution.length);
+	}
+
+	// Get the rules of the grids this solver handles.
+	public RuleSet getRules () {
+		return rules;
+	}
+
+	// Get the number of solutions found by the last search, capped at its limit.
+	public int getSolutionCount () {
+		return solutions;
+	}
+
+	// Determine if the last search gave up because the deadline passed.
+	public boolean isAborted () {
+		return aborted;
+	}
+
+	// Get the number of digits tried during the last search by all of its tasks.
+	public long getNodeCount () {
+		return nodes;
+	}
+
+	// State shared by the tasks of one search.
+	private static class Search
+	{
+		final int limit;
+		final long deadline;	// System.nanoTime at which to give up, or Long.MAX_VALUE for none.
+		final AtomicInteger found = new AtomicInteger();
+		final AtomicReference<int[]> first = new AtomicReference<int[]>();
+		final AtomicLong nodes = new AtomicLong();
+		final AtomicBoolean stop = new AtomicBoolean();	// Set once the limit is reached or the deadline passes.
+
+		// Constructor.
+		Search (int limit, long deadline) {
+			this.limit = limit;
+			this.deadline = deadline;
+		}
+
+		// Determine if the search should stop, setting the flag if the deadline has passed.
+		boolean isStopped () {
+			if (stop.get())
+				return true;
+			if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0) {
+				stop.set(true);
+				return true;
+			}
+			return false;
+		}
+	}
+
+	// Task searching below a partly filled grid, split into a task per digit of its most
+	// constrained cell until deep enough, then solved sequentially.
+	private class SplitTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Search search;
+		private final int[] cells;
+		private final int depth;	// Branch points above this task.
+
+		// Constructor.
+		SplitTask (Search search, int[] cells, int depth) {
+			this.search = search;
+			this.cells = cells;
+			this.depth = depth;
+		}
+
+		protected void compute () {
+			if (search.isStopped())
+				return;
+			if (depth >= splitDepth) {
+				finish();
+				return;
+			}
+
+			// Digits placed in each unit, for the candidates of the empty cells.
+			int[] used = new int[rules.units.length];
+			for (int i = 0; i < cells.length; i++) {
+				if (cells[i] != 0) {
+					for (int u : rules.cellUnits[i])
+						used[u] |= 1 << (cells[i] - 1);
+				}
+			}
+
+			// Place forced cells until one has a choice, then branch on the one with the fewest candidates.
+			int best, bestMask;
+			while (true) {
+				best = -1;
+				bestMask = 0;
+				int bestCount = rules.size + 1;
+				for (int i = 0; i < cells.length; i++) {
+					if (cells[i] != 0)
+						continue;
+					int mask = rules.cellMasks[i];
+					for (int u : rules.cellUnits[i])
+						mask &= ~used[u];
+					int count = Integer.bitCount(mask);
+					if (count == 0)
+						return;
+					if (count < bestCount) {
+						best = i;
+						bestMask = mask;
+						bestCount = count;
+						if (count == 1)
+							break;
+					}
+				}
+				if (best < 0 || bestCount > 1)
+					break;
+
+				cells[best] = Integer.numberOfTrailingZeros(bestMask) + 1;
+				for (int u : rules.cellUnits[best])
+					used[u] |= bestMask;
+			}
+			if (best < 0) {
+				finish(); // Every cell is filled; the solver checks the sums of the cages.
+				return;
+			}
+
+			ArrayList<SplitTask> tasks = new ArrayList<SplitTask>(Integer.bitCount(bestMask));
+			for (int mask = bestMask; mask != 0; mask &= mask - 1) {
+				int[] child = cells.clone();
+				child[best] = Integer.numberOfTrailingZeros(mask) + 1;
+				tasks.add(new SplitTask(search, child, depth + 1));
+			}
+			invokeAll(tasks);
+		}
+
+		// Search the whole subtree with the worker's sequential solver.
+		private void finish () {
+			GridSolver solver = solvers.get();
+			solver.setStopFlag(search.stop);
+			solver.setDeadline(search.deadline);
+			int n = solver.countSolutions(cells, search.limit);
+			search.nodes.addAndGet(solver.getNodeCount());
+			if (solver.isAborted())
+				search.isStopped();
+			if (n == 0)
+				return;
+
+			if (search.first.get() == null) {
+				int[] found = new int[cells.length];
+				solver.getSolution(found);
+				search.first.compareAndSet(null, found);
+			}
+			if (search.found.addAndGet(n) >= search.limit)
+				search.stop.set(true);
+		}
+	}
+}
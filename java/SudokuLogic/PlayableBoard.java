@@ -0,0 +1,52 @@
+package SudokuLogic;
+
+// Board a Game can be played on: the classic Board, or a GridBoard of any geometry. It
+// holds the player's cells and pencil marks over a known solution and original cells, and
+// tracks the cells that conflict.
+public interface PlayableBoard {
+	// Get the geometry of the board.
+	Geometry getGeometry ();
+
+	// Get the value of a particular cell.
+	int getCell (int row, int column);
+
+	// Set the value of a particular cell, unless it is original, clearing the placed digit
+	// from the pencil marks of the cell and its peers.
+	void setCell (int row, int column, int value);
+
+	// Get the value of a particular cell in the solution.
+	int getSolutionCell (int row, int column);
+
+	// Determine if the cell at the particular row and column is original.
+	boolean isOriginalCell (int row, int column);
+
+	// Determine if a particular cell holds a digit other than the one in the solution.
+	boolean isWrong (int row, int column);
+
+	// Get the pencil marks of a particular cell as a digit mask.
+	int getNotes (int row, int column);
+
+	// Set the pencil marks of a particular cell as a digit mask, unless it is original.
+	void setNotes (int row, int column, int mask);
+
+	// Add or remove a single pencil mark of a particular cell.
+	void toggleNote (int row, int column, int digit);
+
+	// Mark every empty cell with the digits it could still hold.
+	void fillNotes ();
+
+	// Determine if any cell may have pencil marks.
+	boolean hasNotes ();
+
+	// Determine if every cell is filled without breaking any rule.
+	boolean isComplete ();
+
+	// Determine if no rule is broken.
+	boolean isValid ();
+
+	// Determine if the digit in a cell breaks any rule.
+	boolean isConflicting (int row, int column);
+
+	// Set the receiver of changes to the conflicting cells, or null for none.
+	void setConflictListener (ConflictListener listener);
+}
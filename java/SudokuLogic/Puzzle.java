@@ -0,0 +1,77 @@
+package SudokuLogic;
+
+// Lightweight immutable puzzle as produced by the puzzle streams: the clues and solution as
+// packed grids, the difficulty it was generated for and the seed that rebuilds it, without
+// the player state, pencil marks and bookkeeping of a Board, which toBoard builds on demand.
+public final class Puzzle
+{
+	private final Difficulty difficulty;	// Difficulty it was generated for, or null if it was read.
+	private final long seed;				// Seed that rebuilds it with Board (Difficulty, long).
+	private final PackedGrid clues;
+	private final PackedGrid solution;
+
+	// Constructor, copying the grids.
+	public Puzzle (Difficulty difficulty, long seed, PackedGrid clues, PackedGrid solution) {
+		this.difficulty = difficulty;
+		this.seed = seed;
+		this.clues = new PackedGrid(clues);
+		this.solution = new PackedGrid(solution);
+	}
+
+	// Get the difficulty the puzzle was generated for, or null if it was read rather than generated.
+	public Difficulty getDifficulty () {
+		return difficulty;
+	}
+
+	// Get the seed that rebuilds the puzzle, which is only meaningful if it was generated.
+	public long getSeed () {
+		return seed;
+	}
+
+	// Get the value of a clue, or zero if the cell is empty.
+	public int getClue (int cell) {
+		return clues.get(cell);
+	}
+
+	// Get the value of a cell of the solution.
+	public int getSolutionCell (int cell) {
+		return solution.get(cell);
+	}
+
+	// Get the number of clues.
+	public int getClueCount () {
+		return clues.getFilledCount();
+	}
+
+	// Get a copy of the clues.
+	public PackedGrid getClues () {
+		return new PackedGrid(clues);
+	}
+
+	// Get a copy of the solution.
+	public PackedGrid getSolution () {
+		return new PackedGrid(solution);
+	}
+
+	// Build a playable board from the puzzle.
+	public Board toBoard () {
+		return new Board(clues, solution);
+	}
+
+	// Determine if another puzzle has the same clues and solution.
+	public boolean equals (Object o) {
+		if (!(o instanceof Puzzle))
+			return false;
+		Puzzle other = (Puzzle) o;
+		return clues.equals(other.clues) && solution.equals(other.solution);
+	}
+
+	public int hashCode () {
+		return clues.hashCode();
+	}
+
+	// Return the clues as a line of 81 characters.
+	public String toString () {
+		return GridFormat.toLineString(clues);
+	}
+}
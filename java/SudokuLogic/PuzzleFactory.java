@@ -0,0 +1,214 @@
+package SudokuLogic;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Generates boards in parallel on a ForkJoinPool and keeps a bounded pool of ready boards
+// for each difficulty, which is refilled in the background as boards are taken. Given a
+// PuzzleIndex, the factory never produces two puzzles equivalent under symmetry, generating
+// again whenever the canonical form of a new puzzle is already in the index.
+public class PuzzleFactory
+{
+	private static final int BATCH_THRESHOLD = 16; // Boards generated by a single batch task.
+
+	private static PuzzleFactory shared; // Factory shared by the whole application.
+
+	private final int capacity;								// Maximum ready boards per difficulty.
+	private final ForkJoinPool pool;						// Workers that generate boards.
+	private final ConcurrentLinkedQueue<Board>[] ready;		// Ready boards for each difficulty.
+	private final AtomicInteger[] reserved;					// Ready plus pending boards for each difficulty.
+	private final PuzzleIndex index;						// Puzzles produced so far, or null to allow repeats.
+
+	// Canonicalizer of each worker thread, created on first use.
+	private static final ThreadLocal<Canonicalizer> CANONICALIZER = new ThreadLocal<Canonicalizer>() {
+		protected Canonicalizer initialValue () {
+			return new Canonicalizer();
+		}
+	};
+
+	// Constructor.
+	public PuzzleFactory (int capacity) {
+		this(capacity, new ForkJoinPool());
+	}
+
+	// Constructor with a specific pool of worker threads.
+	public PuzzleFactory (int capacity, ForkJoinPool pool) {
+		this(capacity, pool, null);
+	}
+
+	// Constructor with a specific pool of worker threads and an index of the puzzles already
+	// produced, or null to allow equivalent puzzles.
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public PuzzleFactory (int capacity, ForkJoinPool pool, PuzzleIndex index) {
+		this.capacity = capacity;
+		this.pool = pool;
+		this.index = index;
+
+		int difficulties = Difficulty.values().length;
+		ready = new ConcurrentLinkedQueue[difficulties];
+		reserved = new AtomicInteger[difficulties];
+		for (int i = 0; i < difficulties; i++) {
+			ready[i] = new ConcurrentLinkedQueue<Board>();
+			reserved[i] = new AtomicInteger();
+		}
+	}
+
+	// Get the factory shared by the whole application, creating it on first use.
+	public static synchronized PuzzleFactory getShared () {
+		if (shared == null)
+			shared = new PuzzleFactory(4, new ForkJoinPool(), new PuzzleIndex(1024));
+		return shared;
+	}
+
+	// Take a ready board of the given difficulty, generating one on the caller's thread only
+	// if the pool is empty, and schedule a replacement in the background.
+	public Board take (Difficulty d) {
+		long start = Metrics.start();
+		Board board = ready[d.ordinal()].poll();
+		if (board != null)
+			reserved[d.ordinal()].decrementAndGet();
+		else {
+			Metrics.POOL_MISSES.increment();
+			board = newBoard(d, index);
+		}
+
+		refill(d);
+		Metrics.TAKE.recordSince(start);
+		return board;
+	}
+
+	// Take a ready board of the given difficulty, or return null without generating one if the
+	// pool is empty, and schedule a replacement in the background.
+	public Board poll (Difficulty d) {
+		Board board = ready[d.ordinal()].poll();
+		if (board != null)
+			reserved[d.ordinal()].decrementAndGet();
+		refill(d);
+		return board;
+	}
+
+	// Generate a board of the given difficulty on a worker thread and hand it to the listener
+	// there, for a caller such as the user interface that must not wait when poll finds the
+	// pool empty.
+	public void generate (final Difficulty d, final BoardListener listener) {
+		pool.execute(new Runnable() {
+			public void run () {
+				listener.onBoardReady(newBoard(d, index));
+			}
+		});
+	}
+
+	// Schedule background generation until the pool for every difficulty is full, one board of
+	// each difficulty at a time so that every difficulty has a board ready as soon as possible.
+	public void refill () {
+		for (int round = 0; round < capacity; round++) {
+			for (Difficulty d : Difficulty.values())
+				reserve(d, round + 1);
+		}
+	}
+
+	// Schedule background generation until the pool for the given difficulty is full.
+	public void refill (Difficulty d) {
+		reserve(d, capacity);
+	}
+
+	// Schedule background generation until the ready and pending boards of the given
+	// difficulty reach a target. A board that fails to generate or to be scheduled gives
+	// back its reservation, so a later refill tries again.
+	private void reserve (final Difficulty d, int target) {
+		final AtomicInteger count = reserved[d.ordinal()];
+		while (true) {
+			int current = count.get();
+			if (current >= target)
+				return;
+			if (!count.compareAndSet(current, current + 1))
+				continue;
+
+			try {
+				pool.execute(new Runnable() {
+					public void run () {
+						Board board = null;
+						try {
+							board = newBoard(d, index);
+						} finally {
+							if (board == null)
+								count.decrementAndGet();
+						}
+						ready[d.ordinal()].offer(board);
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				count.decrementAndGet();
+				throw e;
+			}
+		}
+	}
+
+	// Get the number of ready boards of the given difficulty.
+	public int getAvailable (Difficulty d) {
+		return ready[d.ordinal()].size();
+	}
+
+	// Generate a batch of boards of the given difficulty, splitting the work across the pool.
+	public Board[] generate (Difficulty d, int count) {
+		Board[] boards = new Board[count];
+		pool.invoke(new BatchTask(d, index, boards, 0, count));
+		return boards;
+	}
+
+	// Generate a board on the current thread, repeating until its puzzle is not in the index.
+	private static Board newBoard (Difficulty d, PuzzleIndex index) {
+		while (true) {
+			Board board = new Board(d, ThreadLocalRandom.current());
+			if (index == null || index.add(CANONICALIZER.get().fingerprint(board.getPuzzle())))
+				return board;
+			Metrics.DUPLICATES.increment();
+		}
+	}
+
+	// Get the index of the puzzles produced so far, or null if repeats are allowed.
+	public PuzzleIndex getIndex () {
+		return index;
+	}
+
+	// Stop the worker threads once the scheduled work is done.
+	public void shutdown () {
+		pool.shutdown();
+	}
+
+	// Task filling a range of a batch, split in halves until it is small enough.
+	private static class BatchTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Difficulty difficulty;
+		private final PuzzleIndex index;
+		private final Board[] boards;
+		private final int from, to;
+
+		// Constructor.
+		BatchTask (Difficulty difficulty, PuzzleIndex index, Board[] boards, int from, int to) {
+			this.difficulty = difficulty;
+			this.index = index;
+			this.boards = boards;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute () {
+			if (to - from <= BATCH_THRESHOLD) {
+				for (int i = from; i < to; i++)
+					boards[i] = newBoard(difficulty, index);
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+			invokeAll(new BatchTask(difficulty, index, boards, from, middle),
+				new BatchTask(difficulty, index, boards, middle, to));
+		}
+	}
+}
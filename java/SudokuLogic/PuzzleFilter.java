@@ -0,0 +1,76 @@
+package SudokuLogic;
+
+// Conditions a puzzle must meet to pass through a puzzle stream: a range of clue counts, the
+// grades the logical solver may give it and whether its solution must be proven unique.
+// The checks run on the packed grids from cheapest to dearest before any Puzzle is built.
+// A filter must not be changed once a stream using it has started.
+public class PuzzleFilter
+{
+	private int minClues;		// Fewest clues allowed.
+	private int maxClues;		// Most clues allowed.
+	private int grades;			// Mask of the difficulty ordinals allowed, or zero for any.
+	private boolean unique;		// Whether the solver must prove the solution unique.
+
+	// Constructor for a filter letting every puzzle through.
+	public PuzzleFilter () {
+		minClues = 0;
+		maxClues = 81;
+	}
+
+	// Allow only puzzles with a number of clues within a range.
+	public void setClueRange (int minClues, int maxClues) {
+		if (minClues < 0 || maxClues > 81 || minClues > maxClues)
+			throw new IllegalArgumentException("Invalid clue range " + minClues + " to " + maxClues + ".");
+		this.minClues = minClues;
+		this.maxClues = maxClues;
+	}
+
+	// Allow puzzles that the logical solver grades as the given difficulty, in addition to any
+	// grades already allowed. Until a grade is added, every grade is allowed.
+	public void addGrade (Difficulty d) {
+		grades |= 1 << d.ordinal();
+	}
+
+	// Require the solver to prove that each puzzle has exactly one solution.
+	public void setRequireUnique (boolean unique) {
+		this.unique = unique;
+	}
+
+	// Determine if a puzzle passes, using the scratch solvers of the calling stream.
+	boolean accepts (PackedGrid clues, Checker checker) {
+		int count = clues.getFilledCount();
+		if (count < minClues || count > maxClues)
+			return false;
+
+		if (unique) {
+			clues.toArray(checker.cells);
+			if (checker.solver.countSolutions(checker.cells, 2) != 1)
+				return false;
+		}
+
+		if (grades != 0) {
+			checker.logical.solve(clues);
+			if ((grades & (1 << checker.logical.grade().ordinal())) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	// Solvers and scratch cells of one stream, which checks one puzzle at a time.
+	static class Checker
+	{
+		final Solver solver = new Solver();
+		final LogicalSolver logical = new LogicalSolver();
+		final int[] cells = new int[81];
+
+		// Solve a puzzle into a grid, returning false if it has no solution.
+		boolean solve (PackedGrid clues, PackedGrid solution) {
+			clues.toArray(cells);
+			if (!solver.solve(cells))
+				return false;
+			for (int i = 0; i < 81; i++)
+				solution.set(i, cells[i]);
+			return true;
+		}
+	}
+}
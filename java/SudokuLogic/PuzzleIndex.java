@@ -0,0 +1,107 @@
+package SudokuLogic;
+
+// Set of puzzles already seen, for rejecting a puzzle equivalent to one served before.
+// Each puzzle is stored only as the 64-bit fingerprint of its canonical form, in an open
+// addressing table of longs probed linearly, so an entry costs about ten bytes and tens of
+// millions of them fit in a few hundred megabytes. Two different canonical forms share a
+// fingerprint with negligible probability, at worst rejecting a puzzle that was new.
+// All methods are synchronized, so a single index may be shared by generating threads.
+public class PuzzleIndex
+{
+	private static final int MAX_CAPACITY = 1 << 30;	// Largest table, in slots.
+	private static final long EMPTY = 0;				// Value of an unused slot.
+
+	private long[] table;	// Fingerprints, or EMPTY; the length is a power of two.
+	private int size;		// Number of fingerprints stored.
+	private int threshold;	// Size at which the table is doubled.
+
+	// Constructor for an index expected to hold about the given number of puzzles.
+	public PuzzleIndex (int expected) {
+		int capacity = 16;
+		while (capacity < MAX_CAPACITY && capacity * 0.8 < expected)
+			capacity <<= 1;
+		allocate(capacity);
+	}
+
+	// Get the fingerprint of a canonical form, which is never EMPTY.
+	public static long fingerprint (PackedGrid canonical) {
+		long hash = 0x9E3779B97F4A7C15L;
+		long[] words = canonical.getWords();
+		for (long word : words)
+			hash = mix(hash ^ word) * 0xC2B2AE3D27D4EB4FL;
+		hash = mix(hash);
+		return hash == EMPTY ? 1 : hash;
+	}
+
+	// Scramble the bits of a long, as in the finalizer of MurmurHash3.
+	private static long mix (long h) {
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	// Add a fingerprint, returning false if it was already present.
+	public synchronized boolean add (long fingerprint) {
+		int mask = table.length - 1;
+		int slot = (int) fingerprint & mask;
+		while (table[slot] != EMPTY) {
+			if (table[slot] == fingerprint)
+				return false;
+			slot = (slot + 1) & mask;
+		}
+
+		table[slot] = fingerprint;
+		if (++size >= threshold)
+			grow();
+		return true;
+	}
+
+	// Determine if a fingerprint is present.
+	public synchronized boolean contains (long fingerprint) {
+		int mask = table.length - 1;
+		int slot = (int) fingerprint & mask;
+		while (table[slot] != EMPTY) {
+			if (table[slot] == fingerprint)
+				return true;
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+
+	// Get the number of fingerprints stored.
+	public synchronized int size () {
+		return size;
+	}
+
+	// Get the number of bytes held by the table.
+	public synchronized long getMemoryUsage () {
+		return 8L * table.length;
+	}
+
+	// Double the table and reinsert every fingerprint.
+	private void grow () {
+		if (table.length == MAX_CAPACITY)
+			throw new IllegalStateException("The puzzle index is full.");
+
+		long[] old = table;
+		allocate(old.length << 1);
+		int mask = table.length - 1;
+		for (long fingerprint : old) {
+			if (fingerprint == EMPTY)
+				continue;
+			int slot = (int) fingerprint & mask;
+			while (table[slot] != EMPTY)
+				slot = (slot + 1) & mask;
+			table[slot] = fingerprint;
+		}
+	}
+
+	// Replace the table with an empty one of the given capacity.
+	private void allocate (int capacity) {
+		table = new long[capacity];
+		threshold = capacity == MAX_CAPACITY ? capacity - 1 : (int) (capacity * 0.8);
+	}
+}
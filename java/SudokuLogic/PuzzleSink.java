@@ -0,0 +1,9 @@
+package SudokuLogic;
+
+// Receiver of the puzzles of a stream as packed grids, which the stream reuses for the next
+// puzzle, so that a pipeline that only writes or counts them allocates nothing per puzzle.
+public interface PuzzleSink
+{
+	// Receive a puzzle, which is only valid until this method returns.
+	void accept (long seed, PackedGrid clues, PackedGrid solution);
+}
@@ -0,0 +1,112 @@
+package SudokuLogic;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+// Spliterator generating puzzles of one difficulty lazily over a range of indices of an
+// unbounded sequence. Puzzle N is generated from a seed derived from the base seed and N
+// alone, so the sequence is the same however a parallel stream splits it, and each puzzle
+// can be rebuilt with Board (Difficulty, long) from the seed it reports. Splitting halves
+// the range of indices. Each spliterator generates into its own scratch grids and checks
+// the filter on them before building a Puzzle, and the PuzzleSink variants never build one.
+public class PuzzleSpliterator implements Spliterator<Puzzle>
+{
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L; // Step between the seeds of consecutive indices.
+
+	private final Difficulty difficulty;
+	private final long baseSeed;
+	private final PuzzleFilter filter;	// Conditions each puzzle must meet, or null for none.
+	private long index;					// Next index to generate.
+	private final long end;				// Index after the last, or Long.MAX_VALUE for no end.
+
+	// Scratch state, created on first use so that splitting stays cheap.
+	private SeededRandom random;
+	private Generator generator;
+	private int[][] grid;
+	private PackedGrid clues, solution;
+	private PuzzleFilter.Checker checker;
+
+	// Constructor for the puzzles from a first index up to an end index.
+	public PuzzleSpliterator (Difficulty difficulty, long baseSeed, long index, long end, PuzzleFilter filter) {
+		if (index < 0 || end < index)
+			throw new IllegalArgumentException("Invalid range " + index + " to " + end + ".");
+		this.difficulty = difficulty;
+		this.baseSeed = baseSeed;
+		this.index = index;
+		this.end = end;
+		this.filter = filter;
+	}
+
+	// Get the seed of the puzzle at an index of the sequence of a base seed.
+	public static long getSeed (long baseSeed, long index) {
+		return SeededRandom.mix64(baseSeed + (index * GOLDEN_GAMMA));
+	}
+
+	// Generate puzzles until one passes the filter, leaving it in the scratch grids, or return
+	// false once the range is exhausted.
+	private boolean advance () {
+		if (random == null) {
+			random = new SeededRandom(0);
+			generator = new Generator(random);
+			grid = new int[9][9];
+			clues = new PackedGrid();
+			solution = new PackedGrid();
+			if (filter != null)
+				checker = new PuzzleFilter.Checker();
+		}
+
+		while (index < end) {
+			long start = Metrics.start();
+			random.reset(getSeed(baseSeed, index++));
+			Board.generate(difficulty, generator, random, grid, clues, solution);
+			Metrics.GENERATION.recordSince(start);
+			if (filter == null || filter.accepts(clues, checker))
+				return true;
+		}
+		return false;
+	}
+
+	// Pass the next puzzle that passes the filter to a consumer, returning false if there is none.
+	public boolean tryAdvance (Consumer<? super Puzzle> action) {
+		if (!advance())
+			return false;
+		action.accept(new Puzzle(difficulty, getSeed(baseSeed, index - 1), clues, solution));
+		return true;
+	}
+
+	// Pass the next puzzle that passes the filter to a sink, returning false if there is none.
+	public boolean tryAdvance (PuzzleSink sink) {
+		if (!advance())
+			return false;
+		sink.accept(getSeed(baseSeed, index - 1), clues, solution);
+		return true;
+	}
+
+	// Pass every remaining puzzle that passes the filter to a sink.
+	public void forEachRemaining (PuzzleSink sink) {
+		while (tryAdvance(sink));
+	}
+
+	// Split off the first half of the remaining indices, or return null if fewer than two remain.
+	public PuzzleSpliterator trySplit () {
+		long remaining = end - index;
+		if (remaining < 2)
+			return null;
+		long middle = index + (remaining >>> 1);
+		PuzzleSpliterator prefix = new PuzzleSpliterator(difficulty, baseSeed, index, middle, filter);
+		index = middle;
+		return prefix;
+	}
+
+	// Get the number of indices left, which is exact only without a filter.
+	public long estimateSize () {
+		return end - index;
+	}
+
+	public int characteristics () {
+		int characteristics = ORDERED | NONNULL | IMMUTABLE;
+		if (filter == null && end != Long.MAX_VALUE)
+			characteristics |= SIZED | SUBSIZED;
+		return characteristics;
+	}
+}
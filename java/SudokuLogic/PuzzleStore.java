@@ -0,0 +1,189 @@
+package SudokuLogic;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// On-disk corpus of puzzles with one memory-mapped file per difficulty in a directory.
+// Each file holds a short header followed by fixed-size records of a puzzle and its
+// solution in the binary format of GridFormat, so puzzle N of a difficulty is read
+// straight from the mapping at a computed offset. The header count is updated after each
+// append, so records past it from an interrupted append are ignored and later overwritten.
+// Reads may run on any thread; appends are serialized. A single file is limited to the
+// 2 GB a mapping can address.
+public class PuzzleStore implements Closeable
+{
+	public static final int RECORD_LENGTH = 2 * GridFormat.BINARY_LENGTH; // Puzzle, then solution.
+
+	private static final int HEADER_LENGTH = 16;
+	private static final int COUNT_OFFSET = 12;		// Position of the record count in the header.
+	private static final int MAGIC = 0x5355444B; // "SUDK".
+	private static final int VERSION = 1;
+	private static final String EXTENSION = ".puzzles";
+
+	private final boolean writable;
+	private final FileChannel[] channels;		// Open file for each difficulty, or null if absent.
+	private final AtomicReferenceArray<MappedByteBuffer> maps; // Current mapping of each file.
+	private final int[] counts;					// Number of records in each file.
+
+	// Constructor opening, and if writable creating, the corpus in the given directory.
+	public PuzzleStore (File directory, boolean writable) throws IOException {
+		this.writable = writable;
+
+		int difficulties = Difficulty.values().length;
+		channels = new FileChannel[difficulties];
+		maps = new AtomicReferenceArray<MappedByteBuffer>(difficulties);
+		counts = new int[difficulties];
+
+		if (writable && !directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create directory " + directory + ".");
+
+		try {
+			for (Difficulty d : Difficulty.values())
+				open(new File(directory, d.name().toLowerCase(Locale.US) + EXTENSION), d.ordinal());
+		} catch (IOException e) {
+			close();
+			throw e;
+		}
+	}
+
+	// Open the file for one difficulty, writing its header if it is new.
+	private void open (File file, int index) throws IOException {
+		if (!file.exists() && !writable)
+			return;
+
+		FileChannel channel = new RandomAccessFile(file, writable ? "rw" : "r").getChannel();
+		channels[index] = channel;
+
+		if (channel.size() == 0) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+			header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_LENGTH).putInt(0);
+			header.flip();
+			channel.write(header, 0);
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		channel.read(header, 0);
+		header.flip();
+		if (header.remaining() < HEADER_LENGTH || header.getInt() != MAGIC
+				|| header.getInt() != VERSION || header.getInt() != RECORD_LENGTH)
+			throw new IOException(file + " is not a puzzle corpus.");
+
+		int count = header.getInt();
+		if (count < 0 || count > (channel.size() - HEADER_LENGTH) / RECORD_LENGTH)
+			throw new IOException(file + " holds fewer records than its header counts.");
+		counts[index] = count;
+		remap(index);
+	}
+
+	// Map the whole file for one difficulty, returning the new mapping.
+	private synchronized MappedByteBuffer remap (int index) throws IOException {
+		if (channels[index] == null)
+			throw new IOException("The puzzle store is closed.");
+		long length = HEADER_LENGTH + ((long) counts[index] * RECORD_LENGTH);
+		MappedByteBuffer map = maps.get(index);
+		if (map == null || map.capacity() < length) {
+			map = channels[index].map(FileChannel.MapMode.READ_ONLY, 0, length);
+			maps.set(index, map);
+		}
+		return map;
+	}
+
+	// Get the number of puzzles of the given difficulty.
+	public synchronized int getCount (Difficulty d) {
+		return counts[d.ordinal()];
+	}
+
+	// Read puzzle N of the given difficulty and its solution into the given grids.
+	public void get (Difficulty d, int n, PackedGrid puzzle, PackedGrid solution) throws IOException {
+		int index = d.ordinal();
+		if (n < 0 || n >= getCount(d))
+			throw new IndexOutOfBoundsException("No " + d + " puzzle " + n + ".");
+
+		long offset = HEADER_LENGTH + ((long) n * RECORD_LENGTH);
+		MappedByteBuffer map = maps.get(index);
+		if (map == null || map.capacity() < offset + RECORD_LENGTH)
+			map = remap(index);
+
+		GridFormat.readBinary(map, (int) offset, puzzle);
+		GridFormat.readBinary(map, (int) offset + GridFormat.BINARY_LENGTH, solution);
+	}
+
+	// Get puzzle N of the given difficulty as a new board.
+	public Board get (Difficulty d, int n) throws IOException {
+		PackedGrid puzzle = new PackedGrid();
+		PackedGrid solution = new PackedGrid();
+		get(d, n, puzzle, solution);
+		return new Board(puzzle, solution);
+	}
+
+	// Append a puzzle and its solution, returning its number within the difficulty.
+	public int append (Difficulty d, PackedGrid puzzle, PackedGrid solution) throws IOException {
+		ByteBuffer record = ByteBuffer.allocate(RECORD_LENGTH);
+		GridFormat.writeBinary(puzzle, record);
+		GridFormat.writeBinary(solution, record);
+		record.flip();
+		return write(d, record, 1);
+	}
+
+	// Append the original cells and solutions of a batch of boards in a single write,
+	// returning the number of the first within the difficulty.
+	public int append (Difficulty d, Board[] boards) throws IOException {
+		ByteBuffer records = ByteBuffer.allocate(boards.length * RECORD_LENGTH);
+		for (Board board : boards) {
+			GridFormat.writeBinary(board.getPuzzle(), records);
+			GridFormat.writeBinary(board.getSolution(), records);
+		}
+		records.flip();
+		return write(d, records, boards.length);
+	}
+
+	// Write whole records to the end of the file for one difficulty, then count them in the header.
+	private synchronized int write (Difficulty d, ByteBuffer records, int count) throws IOException {
+		if (!writable)
+			throw new IllegalStateException("The puzzle store is read-only.");
+
+		long start = Metrics.start();
+		int index = d.ordinal();
+		long position = HEADER_LENGTH + ((long) counts[index] * RECORD_LENGTH);
+		if (position + records.remaining() > Integer.MAX_VALUE)
+			throw new IOException("The " + d + " puzzles would pass the 2 GB a mapping can address.");
+		while (records.hasRemaining())
+			position += channels[index].write(records, position);
+
+		ByteBuffer header = ByteBuffer.allocate(4);
+		header.putInt(counts[index] + count);
+		header.flip();
+		while (header.hasRemaining())
+			channels[index].write(header, COUNT_OFFSET + header.position());
+
+		int first = counts[index];
+		counts[index] += count;
+		Metrics.PERSISTENCE.recordSince(start);
+		return first;
+	}
+
+	// Close the files of every difficulty.
+	public synchronized void close () throws IOException {
+		IOException failure = null;
+		for (int i = 0; i < channels.length; i++) {
+			if (channels[i] == null)
+				continue;
+			try {
+				channels[i].close();
+			} catch (IOException e) {
+				failure = e;
+			}
+			channels[i] = null;
+			maps.set(i, null);
+		}
+		if (failure != null)
+			throw failure;
+	}
+}
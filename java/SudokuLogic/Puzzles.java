@@ -0,0 +1,67 @@
+package SudokuLogic;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Lazy streams of puzzles, generated from a seed or read in the line format, which hold one
+// puzzle at a time however many pass through, so a pipeline of filters and writers runs in
+// constant memory. Generated streams split evenly for parallel streams and are the same
+// sequence however they are split; for sinks that take packed grids without building a
+// Puzzle, use a PuzzleSpliterator directly.
+public final class Puzzles
+{
+	private Puzzles () {}
+
+	// Get an unbounded stream of puzzles of a difficulty generated from a base seed.
+	public static Stream<Puzzle> generate (Difficulty d, long seed) {
+		return generate(d, seed, Long.MAX_VALUE, null);
+	}
+
+	// Get a stream of puzzles of a difficulty generated from a base seed, trying up to a number
+	// of seeds and keeping those that pass the filter, which may be null to keep them all.
+	public static Stream<Puzzle> generate (Difficulty d, long seed, long count, PuzzleFilter filter) {
+		return StreamSupport.stream(new PuzzleSpliterator(d, seed, 0, count, filter), false);
+	}
+
+	// Get a stream of the puzzles read from lines in the line format, skipping blank lines and
+	// those starting with '#', with the solver finding each solution. Puzzles that are
+	// malformed, unsolvable or rejected by the filter, which may be null, are dropped before
+	// any Puzzle is built. Reading errors are thrown as UncheckedIOException.
+	public static Stream<Puzzle> read (final BufferedReader in, final PuzzleFilter filter) {
+		Spliterator<Puzzle> spliterator = new Spliterators.AbstractSpliterator<Puzzle>(Long.MAX_VALUE,
+				Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE) {
+			private final PuzzleFilter.Checker checker = new PuzzleFilter.Checker();
+			private final PackedGrid clues = new PackedGrid();
+			private final PackedGrid solution = new PackedGrid();
+
+			public boolean tryAdvance (Consumer<? super Puzzle> action) {
+				try {
+					String line;
+					while ((line = in.readLine()) != null) {
+						if (line.length() == 0 || line.charAt(0) == '#')
+							continue;
+						try {
+							GridFormat.readLine(line, 0, clues);
+						} catch (IllegalArgumentException e) {
+							continue;
+						}
+						if ((filter == null || filter.accepts(clues, checker)) && checker.solve(clues, solution)) {
+							action.accept(new Puzzle(null, 0, clues, solution));
+							return true;
+						}
+					}
+					return false;
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		};
+		return StreamSupport.stream(spliterator, false);
+	}
+}
@@ -0,0 +1,149 @@
+package SudokuLogic;
+
+import java.util.Arrays;
+
+// Rules of a Sudoku variant compiled into index tables. Every rule is a unit of cells holding
+// distinct digits: first the rows, columns and regions, then any diagonals, which like them
+// must hold every digit, and last the killer cages, which may also have a sum. Each cell also
+// has a mask of the digits it allows. Validation, solving and generation only walk these
+// tables, so every variant runs through the same code. Instances are immutable.
+public final class RuleSet
+{
+	private static final RuleSet[] STANDARD = new RuleSet[Geometry.MAX_BOX_SIZE + 1];
+
+	final Geometry geometry;
+	final int size;				// Number of digits.
+	final int cellCount;		// Number of cells.
+	final int allDigits;		// Mask containing every digit.
+	final int completeCount;	// Number of units that must hold every digit, which come first.
+	final int[][] units;		// Cells of each unit.
+	final int[] sums;			// Sum required of each unit, or zero for none.
+	final int[][] cellUnits;	// Units containing each cell, in increasing order.
+	final int[][] peers;		// Cells sharing a unit with each cell, in increasing order.
+	final int[] cellMasks;		// Digits allowed in each cell.
+	final boolean standard;		// Whether these are the plain rules of the geometry.
+
+	// Constructor compiling a declaration; see Variant.compile.
+	RuleSet (Geometry geometry, int[] regions, boolean diagonals, int[][] cages, int[] cageSums, int[] cellMasks) {
+		this.geometry = geometry;
+		size = geometry.size;
+		cellCount = geometry.cellCount;
+		allDigits = geometry.allDigits;
+		this.cellMasks = cellMasks;
+		completeCount = (3 * size) + (diagonals ? 2 : 0);
+
+		boolean unrestricted = true;
+		for (int mask : cellMasks)
+			unrestricted &= mask == allDigits;
+		standard = regions == null && !diagonals && cages.length == 0 && unrestricted;
+
+		// Rows, columns and sub-grids are laid out as in the geometry, unless replaced by regions.
+		units = new int[completeCount + cages.length][];
+		sums = new int[units.length];
+		for (int u = 0; u < 2 * size; u++)
+			units[u] = geometry.units[u];
+		if (regions == null) {
+			for (int u = 2 * size; u < 3 * size; u++)
+				units[u] = geometry.units[u];
+		}
+		else {
+			int[] counts = new int[size];
+			for (int r = 0; r < size; r++)
+				units[(2 * size) + r] = new int[size];
+			for (int i = 0; i < cellCount; i++)
+				units[(2 * size) + regions[i]][counts[regions[i]]++] = i;
+		}
+		if (diagonals) {
+			int[] main = new int[size], anti = new int[size];
+			for (int i = 0; i < size; i++) {
+				main[i] = (i * size) + i;
+				anti[i] = (i * size) + (size - 1 - i);
+			}
+			units[3 * size] = main;
+			units[(3 * size) + 1] = anti;
+		}
+		for (int c = 0; c < cages.length; c++) {
+			units[completeCount + c] = cages[c];
+			sums[completeCount + c] = cageSums[c];
+		}
+
+		// Invert the units into the units of each cell and the peers of each cell.
+		int[] counts = new int[cellCount];
+		for (int[] unit : units) {
+			for (int cell : unit)
+				counts[cell]++;
+		}
+		cellUnits = new int[cellCount][];
+		for (int i = 0; i < cellCount; i++)
+			cellUnits[i] = new int[counts[i]];
+		Arrays.fill(counts, 0);
+		for (int u = 0; u < units.length; u++) {
+			for (int cell : units[u])
+				cellUnits[cell][counts[cell]++] = u;
+		}
+
+		peers = new int[cellCount][];
+		boolean[] shared = new boolean[cellCount];
+		for (int i = 0; i < cellCount; i++) {
+			int count = 0;
+			for (int u : cellUnits[i]) {
+				for (int cell : units[u]) {
+					if (cell != i && !shared[cell]) {
+						shared[cell] = true;
+						count++;
+					}
+				}
+			}
+			peers[i] = new int[count];
+			count = 0;
+			for (int j = 0; j < cellCount; j++) {
+				if (shared[j]) {
+					peers[i][count++] = j;
+					shared[j] = false;
+				}
+			}
+		}
+	}
+
+	// Get the shared plain rules of a geometry: rows, columns and sub-grids.
+	public static synchronized RuleSet standard (Geometry geometry) {
+		if (STANDARD[geometry.boxSize] == null)
+			STANDARD[geometry.boxSize] = new Variant(geometry).compile();
+		return STANDARD[geometry.boxSize];
+	}
+
+	// Get the geometry of the grid.
+	public Geometry getGeometry () {
+		return geometry;
+	}
+
+	// Get the number of units, including the killer cages.
+	public int getUnitCount () {
+		return units.length;
+	}
+
+	// Get the number of units that must hold every digit.
+	public int getCompleteUnitCount () {
+		return completeCount;
+	}
+
+	// Get a copy of the cells of a unit.
+	public int[] getUnit (int unit) {
+		return units[unit].clone();
+	}
+
+	// Get the sum required of a unit, or zero if it has none.
+	public int getSum (int unit) {
+		return sums[unit];
+	}
+
+	// Get the mask of digits allowed in a cell.
+	public int getCellMask (int cell) {
+		return cellMasks[cell];
+	}
+
+	// Determine if these are the plain rules of the geometry, with no variant constraints.
+	public boolean isStandard () {
+		return standard;
+	}
+}
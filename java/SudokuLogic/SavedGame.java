@@ -0,0 +1,59 @@
+package SudokuLogic;
+
+// Snapshot of an in-progress game: its difficulty, elapsed time, packed board, pencil marks
+// and move journal, as written and read by a GameStore.
+public class SavedGame
+{
+	private final Difficulty difficulty;	// Difficulty the game was started with.
+	private final long elapsed;				// Milliseconds played so far.
+	private final long[] state;				// Packed board, solution and original cells.
+	private final short[] notes;			// Pencil marks of every cell, or null if none.
+	private final int[] journal;			// Packed move journal, or null if none.
+
+	// Constructor.
+	public SavedGame (Difficulty difficulty, long elapsed, long[] state, short[] notes, int[] journal) {
+		this.difficulty = difficulty;
+		this.elapsed = elapsed;
+		this.state = state;
+		this.notes = notes;
+		this.journal = journal;
+	}
+
+	// Constructor capturing a game in progress.
+	public SavedGame (Difficulty difficulty, long elapsed, Game game) {
+		this(difficulty, elapsed, game.getState(), game.getNotesArray(), game.getJournalArray());
+	}
+
+	// Rebuild the game from the snapshot.
+	public Game toGame () {
+		Game game = new Game(new Board(state));
+		game.setNotesArray(notes);
+		game.setJournalArray(journal);
+		return game;
+	}
+
+	// Get the difficulty the game was started with.
+	public Difficulty getDifficulty () {
+		return difficulty;
+	}
+
+	// Get the milliseconds played so far.
+	public long getElapsed () {
+		return elapsed;
+	}
+
+	// Get the packed board, solution and original cells.
+	public long[] getState () {
+		return state;
+	}
+
+	// Get the pencil marks of every cell, or null if there are none.
+	public short[] getNotes () {
+		return notes;
+	}
+
+	// Get the packed move journal, or null if there is none.
+	public int[] getJournal () {
+		return journal;
+	}
+}
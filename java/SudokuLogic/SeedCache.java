@@ -0,0 +1,77 @@
+package SudokuLogic;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Boards rebuilt from seeds on demand, so that puzzles such as the daily challenge can be
+// shipped and stored as a seed and a difficulty instead of a board. The packed state of the
+// most recently used boards of each difficulty is kept, and evicted least recently used
+// first. Boards are generated outside the lock, so a slow generation never blocks a lookup;
+// two threads asking for the same new seed may both generate it, with the same result.
+public class SeedCache
+{
+	private static final long DAILY_SALT = 0x5355444F4B55L; // "SUDOKU", so daily seeds differ from small plain seeds.
+
+	private final int capacity;							// Boards kept for each difficulty.
+	private final LinkedHashMap<Long, long[]>[] states;	// Packed state of each cached board, by difficulty.
+
+	// Constructor keeping up to the given number of boards of each difficulty.
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public SeedCache (final int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Invalid capacity " + capacity + ".");
+		this.capacity = capacity;
+		states = new LinkedHashMap[Difficulty.values().length];
+		for (int i = 0; i < states.length; i++) {
+			states[i] = new LinkedHashMap<Long, long[]>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				protected boolean removeEldestEntry (Map.Entry<Long, long[]> eldest) {
+					return size() > capacity;
+				}
+			};
+		}
+	}
+
+	// Get the seed of the daily puzzle for a day counted from 1970-01-01, as LocalDate.toEpochDay does.
+	public static long getDailySeed (long epochDay) {
+		return SeededRandom.mix64(epochDay ^ DAILY_SALT);
+	}
+
+	// Get a new board for a seed and difficulty, generating it only if it is not cached.
+	public Board get (Difficulty d, long seed) {
+		LinkedHashMap<Long, long[]> cache = states[d.ordinal()];
+		long[] state;
+		synchronized (this) {
+			state = cache.get(seed);
+		}
+		if (state == null) {
+			state = new Board(d, seed).getState();
+			synchronized (this) {
+				cache.put(seed, state);
+			}
+		}
+		return new Board(state);
+	}
+
+	// Determine if the board for a seed and difficulty is cached.
+	public synchronized boolean contains (Difficulty d, long seed) {
+		return states[d.ordinal()].containsKey(seed);
+	}
+
+	// Get the number of boards cached for a difficulty.
+	public synchronized int getSize (Difficulty d) {
+		return states[d.ordinal()].size();
+	}
+
+	// Get the number of boards kept for each difficulty.
+	public int getCapacity () {
+		return capacity;
+	}
+
+	// Remove every cached board.
+	public synchronized void clear () {
+		for (LinkedHashMap<Long, long[]> cache : states)
+			cache.clear();
+	}
+}
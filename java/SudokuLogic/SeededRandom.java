@@ -0,0 +1,79 @@
+package SudokuLogic;
+
+import java.util.Random;
+
+// Fast random number generator for reproducible generation, using the SplitMix64 algorithm
+// of java.util.SplittableRandom while remaining a Random that Board and the generators
+// accept. Its whole state is one 64-bit value advanced by a constant odd gamma, so the same
+// seed always yields the same numbers on every platform, and unlike Random it updates that
+// state without synchronizing. Split returns an independent generator for another thread
+// or another part of a job. Instances are not thread-safe; use one per thread.
+public final class SeededRandom extends Random
+{
+	private static final long serialVersionUID = 1L;
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private long state;
+	private final long gamma; // Odd step added to the state for each number.
+
+	// Constructor.
+	public SeededRandom (long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	// Constructor with a specific gamma, which split derives from its parent.
+	private SeededRandom (long seed, long gamma) {
+		super(0);
+		state = seed;
+		this.gamma = gamma;
+	}
+
+	// Return a new generator whose numbers are independent of this one's, advancing this one.
+	public SeededRandom split () {
+		return new SeededRandom(mix64(nextSeed()), mixGamma(nextSeed()));
+	}
+
+	// Restart the sequence of numbers from a seed, for a generator reused across many seeds.
+	void reset (long seed) {
+		state = seed;
+	}
+
+	// Reseeding would break reproducibility; only the constructor of Random may call this.
+	public void setSeed (long seed) {
+		if (gamma != 0)
+			throw new UnsupportedOperationException("A SeededRandom cannot be reseeded.");
+	}
+
+	protected int next (int bits) {
+		return (int) (mix64(nextSeed()) >>> (64 - bits));
+	}
+
+	public long nextLong () {
+		return mix64(nextSeed());
+	}
+
+	public int nextInt () {
+		return (int) (mix64(nextSeed()) >>> 32);
+	}
+
+	// Advance the state by the gamma.
+	private long nextSeed () {
+		return state += gamma;
+	}
+
+	// Scramble a state into a well-distributed 64-bit number.
+	static long mix64 (long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	// Derive an odd gamma with enough bit transitions to step the state well.
+	private static long mixGamma (long z) {
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int n = Long.bitCount(z ^ (z >>> 1));
+		return (n < 24) ? z ^ 0xAAAAAAAAAAAAAAAAL : z;
+	}
+}
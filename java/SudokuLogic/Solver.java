@@ -0,0 +1,292 @@
+package SudokuLogic;
+
+// Bitboard backtracking solver that can also count solutions up to a limit.
+// A Solver keeps all of its working state in preallocated arrays, so the search
+// itself allocates nothing. Instances are not thread-safe; use one per thread.
+public class Solver
+{
+	// Row, column and sub-grid of each of the 81 cells, indexed row by row.
+	static final int[] ROW = Geometry.CLASSIC.row;
+	static final int[] COLUMN = Geometry.CLASSIC.column;
+	static final int[] BOX = Geometry.CLASSIC.box;
+	static final int[][] UNITS = Geometry.CLASSIC.units;
+
+	// Working state for the search.
+	private final int[] cells;		// Current digit of each cell, or zero if empty.
+	private final int[] rows;		// Digits placed in each row.
+	private final int[] columns;	// Digits placed in each column.
+	private final int[] boxes;		// Digits placed in each sub-grid.
+	private final int[] empty;		// Indices of the empty cells; those before the depth are filled.
+	private final int[] solution;	// First solution found by the last search.
+	private final int[] candidates;	// Scratch candidate mask of each empty cell.
+	private final int[] once;		// Scratch mask of digits with a candidate cell in each unit.
+	private final int[] twice;		// Scratch mask of digits with two or more candidate cells in each unit.
+	private int emptyCount;
+	private int limit;
+
+	// Statistics for the last search.
+	private int solutions;	// Number of solutions found, never more than the limit.
+	private long nodes;		// Number of digits tried.
+	private long guesses;	// Number of cells where more than one digit had to be tried.
+
+	// Constructor.
+	public Solver () {
+		cells = new int[81];
+		rows = new int[9];
+		columns = new int[9];
+		boxes = new int[9];
+		empty = new int[81];
+		solution = new int[81];
+		candidates = new int[81];
+		once = new int[27];
+		twice = new int[27];
+	}
+
+	// Solve the given two-dimensional grid in place, returning false if it has no solution.
+	public boolean solve (int[][] grid) {
+		if (countSolutions(grid, 1) == 0)
+			return false;
+		for (int i = 0; i < 81; i++)
+			grid[ROW[i]][COLUMN[i]] = solution[i];
+		return true;
+	}
+
+	// Solve the given grid of 81 cells in place, returning false if it has no solution.
+	public boolean solve (int[] grid) {
+		if (countSolutions(grid, 1) == 0)
+			return false;
+		System.arraycopy(solution, 0, grid, 0, 81);
+		return true;
+	}
+
+	// Count the solutions of a two-dimensional grid, stopping once the limit is reached.
+	public int countSolutions (int[][] grid, int limit) {
+		for (int i = 0; i < 81; i++)
+			cells[i] = grid[ROW[i]][COLUMN[i]];
+		return start(limit);
+	}
+
+	// Count the solutions of a grid of 81 cells, stopping once the limit is reached.
+	public int countSolutions (int[] grid, int limit) {
+		System.arraycopy(grid, 0, cells, 0, 81);
+		return start(limit);
+	}
+
+	// Determine if the given grid has exactly one solution.
+	public boolean hasUniqueSolution (int[][] grid) {
+		return countSolutions(grid, 2) == 1;
+	}
+
+	// Determine if the given grid of 81 cells has exactly one solution.
+	public boolean hasUniqueSolution (int[] grid) {
+		return countSolutions(grid, 2) == 1;
+	}
+
+	// Load the working cells into the masks and run the search.
+	private int start (int limit) {
+		long start = Metrics.start();
+		this.limit = limit;
+		solutions = 0;
+		nodes = 0;
+		guesses = 0;
+		emptyCount = 0;
+
+		for (int i = 0; i < 9; i++) {
+			rows[i] = 0;
+			columns[i] = 0;
+			boxes[i] = 0;
+		}
+
+		for (int i = 0; i < 81; i++) {
+			int value = cells[i];
+			if (value == 0) {
+				empty[emptyCount++] = i;
+				continue;
+			}
+
+			// Givens that already conflict leave nothing to search.
+			int bit = 1 << (value - 1);
+			if (((rows[ROW[i]] | columns[COLUMN[i]] | boxes[BOX[i]]) & bit) != 0)
+				return 0;
+			rows[ROW[i]] |= bit;
+			columns[COLUMN[i]] |= bit;
+			boxes[BOX[i]] |= bit;
+		}
+
+		if (limit > 0)
+			search(0);
+		Metrics.SOLVING.recordSince(start);
+		return solutions;
+	}
+
+	// Fill the empty cells from the given depth. Naked and hidden singles are placed at the
+	// node itself, each pass over the empty cells or units placing every single it meets,
+	// and only once none is left does the search branch on the most constrained cell. The
+	// cells placed at the node are those from the depth up to filled, and are cleared on return.
+	private void search (int depth) {
+		int filled = depth;
+		int best = -1, bestMask = 0;
+
+		while (true) {
+			// Place naked singles and find the empty cell with the fewest candidates.
+			boolean placed = false;
+			int bestCount = 10;
+			for (int i = filled; i < emptyCount; i++) {
+				int cell = empty[i];
+				int mask = Constraints.ALL_DIGITS & ~(rows[ROW[cell]] | columns[COLUMN[cell]] | boxes[BOX[cell]]);
+				if (mask == 0) {
+					undo(depth, filled);
+					return;
+				}
+				if ((mask & (mask - 1)) == 0) {
+					place(cell, mask);
+					empty[i] = empty[filled];
+					empty[filled++] = cell;
+					placed = true;
+					continue;
+				}
+				candidates[cell] = mask;
+				int count = Integer.bitCount(mask);
+				if (count < bestCount) {
+					best = i;
+					bestMask = mask;
+					bestCount = count;
+				}
+			}
+			if (filled == emptyCount)
+				break;
+			if (placed)
+				continue;
+
+			// Place the digits that fit in only one cell of some unit before guessing.
+			for (int i = 0; i < 27; i++) {
+				once[i] = 0;
+				twice[i] = 0;
+			}
+			for (int i = filled; i < emptyCount; i++) {
+				int cell = empty[i];
+				int mask = candidates[cell];
+				int row = ROW[cell], column = 9 + COLUMN[cell], box = 18 + BOX[cell];
+				twice[row] |= once[row] & mask;
+				once[row] |= mask;
+				twice[column] |= once[column] & mask;
+				once[column] |= mask;
+				twice[box] |= once[box] & mask;
+				once[box] |= mask;
+			}
+
+			for (int u = 0; u < 27; u++) {
+				int done = u < 9 ? rows[u] : u < 18 ? columns[u - 9] : boxes[u - 18];
+				if ((once[u] | done) != Constraints.ALL_DIGITS) {
+					undo(depth, filled); // A digit has nowhere left to go in this unit.
+					return;
+				}
+
+				int hidden = once[u] & ~twice[u];
+				while (hidden != 0) {
+					int bit = hidden & -hidden;
+					hidden ^= bit;
+					for (int cell : UNITS[u]) {
+						if (cells[cell] != 0 || (candidates[cell] & bit) == 0)
+							continue;
+
+						// A single that an earlier one of this pass took away is left to the next pass.
+						if (((rows[ROW[cell]] | columns[COLUMN[cell]] | boxes[BOX[cell]]) & bit) == 0) {
+							place(cell, bit);
+							for (int i = filled; ; i++) {
+								if (empty[i] == cell) {
+									empty[i] = empty[filled];
+									empty[filled++] = cell;
+									break;
+								}
+							}
+							placed = true;
+						}
+						break;
+					}
+				}
+			}
+			if (!placed)
+				break;
+		}
+
+		if (filled == emptyCount) {
+			if (solutions == 0)
+				System.arraycopy(cells, 0, solution, 0, 81);
+			solutions++;
+			undo(depth, filled);
+			return;
+		}
+
+		// Branch on the most constrained cell.
+		guesses++;
+		int cell = empty[best];
+		empty[best] = empty[filled];
+		empty[filled] = cell;
+
+		int row = ROW[cell], column = COLUMN[cell], box = BOX[cell];
+		while (bestMask != 0) {
+			int bit = bestMask & -bestMask;
+			bestMask ^= bit;
+			place(cell, bit);
+
+			search(filled + 1);
+
+			rows[row] ^= bit;
+			columns[column] ^= bit;
+			boxes[box] ^= bit;
+
+			if (solutions >= limit)
+				break;
+		}
+		cells[cell] = 0;
+		undo(depth, filled);
+	}
+
+	// Place a digit, given as a bit, in an empty cell.
+	private void place (int cell, int bit) {
+		nodes++;
+		rows[ROW[cell]] |= bit;
+		columns[COLUMN[cell]] |= bit;
+		boxes[BOX[cell]] |= bit;
+		cells[cell] = Integer.numberOfTrailingZeros(bit) + 1;
+	}
+
+	// Clear the cells placed by a node, those of the empty list from one depth up to another.
+	private void undo (int depth, int filled) {
+		for (int i = depth; i < filled; i++) {
+			int cell = empty[i];
+			int bit = ~(1 << (cells[cell] - 1));
+			rows[ROW[cell]] &= bit;
+			columns[COLUMN[cell]] &= bit;
+			boxes[BOX[cell]] &= bit;
+			cells[cell] = 0;
+		}
+	}
+
+	// Copy the first solution found by the last search into a two-dimensional grid.
+	public void getSolution (int[][] grid) {
+		for (int i = 0; i < 81; i++)
+			grid[ROW[i]][COLUMN[i]] = solution[i];
+	}
+
+	// Copy the first solution found by the last search into a grid of 81 cells.
+	public void getSolution (int[] grid) {
+		System.arraycopy(solution, 0, grid, 0, 81);
+	}
+
+	// Get the number of solutions found by the last search, capped at its limit.
+	public int getSolutionCount () {
+		return solutions;
+	}
+
+	// Get the number of digits tried during the last search.
+	public long getNodeCount () {
+		return nodes;
+	}
+
+	// Get the number of cells with more than one candidate branched on during the last search.
+	public long getGuessCount () {
+		return guesses;
+	}
+}
@@ -0,0 +1,20 @@
+package SudokuLogic;
+
+// The human solving techniques applied by the logical solver, from easiest to hardest,
+// each with the weight it adds to a puzzle's difficulty score every time it is used.
+public enum Technique {
+	NAKED_SINGLE(10), HIDDEN_SINGLE(15), POINTING(26), CLAIMING(28),
+	NAKED_PAIR(30), X_WING(32), HIDDEN_PAIR(34);
+
+	private final int weight; // Score added for each step using the technique.
+
+	// Constructor.
+	Technique (int weight) {
+		this.weight = weight;
+	}
+
+	// Get the score added for each step using the technique.
+	public int getWeight () {
+		return weight;
+	}
+}
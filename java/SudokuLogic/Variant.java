@@ -0,0 +1,88 @@
+package SudokuLogic;
+
+import java.util.ArrayList;
+
+// Declaration of the rules of a Sudoku variant as data: irregular regions replacing the
+// sub-grids, the two main diagonals, killer cages with sums and cells restricted to odd or
+// even digits. A declaration is compiled into a RuleSet, whose index tables are all that
+// validation, solving and generation look at, so a new variant needs no code of its own.
+public class Variant
+{
+	private final Geometry geometry;
+	private int[] regions;					// Region of each cell, or null for the sub-grids.
+	private boolean diagonals;				// Whether both main diagonals hold every digit.
+	private final ArrayList<int[]> cages;	// Cells of each killer cage.
+	private final ArrayList<Integer> sums;	// Sum of each killer cage, or zero for none.
+	private final int[] cellMasks;			// Digits allowed in each cell.
+
+	// Constructor for the classic rules of the given geometry.
+	public Variant (Geometry geometry) {
+		this.geometry = geometry;
+		cages = new ArrayList<int[]>();
+		sums = new ArrayList<Integer>();
+		cellMasks = new int[geometry.cellCount];
+		for (int i = 0; i < cellMasks.length; i++)
+			cellMasks[i] = geometry.allDigits;
+	}
+
+	// Replace the sub-grids with irregular regions, given as the region of each cell, where
+	// each of the regions must hold as many cells as there are digits.
+	public void setRegions (int[] regions) {
+		if (regions.length != geometry.cellCount)
+			throw new IllegalArgumentException("A " + geometry + " grid has " + geometry.cellCount + " cells.");
+
+		int[] counts = new int[geometry.size];
+		for (int region : regions) {
+			if (region < 0 || region >= geometry.size || ++counts[region] > geometry.size)
+				throw new IllegalArgumentException("Region " + region + " is invalid or too large.");
+		}
+		this.regions = regions.clone();
+	}
+
+	// Require each of the two main diagonals to hold every digit.
+	public void addDiagonals () {
+		diagonals = true;
+	}
+
+	// Add a killer cage whose cells hold distinct digits adding up to the sum, or to any sum if
+	// the sum is zero.
+	public void addCage (int sum, int... cells) {
+		if (cells.length == 0 || cells.length > geometry.size)
+			throw new IllegalArgumentException("A cage must hold between 1 and " + geometry.size + " cells.");
+		for (int cell : cells) {
+			if (cell < 0 || cell >= geometry.cellCount)
+				throw new IllegalArgumentException("Invalid cell " + cell + ".");
+		}
+		cages.add(cells.clone());
+		sums.add(sum);
+	}
+
+	// Restrict a cell to odd digits.
+	public void setOdd (int cell) {
+		restrictCell(cell, 0x55555555 & geometry.allDigits);
+	}
+
+	// Restrict a cell to even digits.
+	public void setEven (int cell) {
+		restrictCell(cell, 0xAAAAAAAA & geometry.allDigits);
+	}
+
+	// Restrict a cell to the digits of a mask.
+	public void restrictCell (int cell, int mask) {
+		cellMasks[cell] &= mask;
+	}
+
+	// Compile the declaration into the index tables of a rule set.
+	public RuleSet compile () {
+		int[] sumArray = new int[sums.size()];
+		for (int i = 0; i < sumArray.length; i++)
+			sumArray[i] = sums.get(i);
+		return new RuleSet(geometry, regions, diagonals, cages.toArray(new int[cages.size()][]), sumArray,
+			cellMasks.clone());
+	}
+
+	// Get the geometry of the grid.
+	public Geometry getGeometry () {
+		return geometry;
+	}
+}
@@ -11,17 +11,27 @@ import android.support.v7.widget.Toolbar;
 import android.view.View;
 import android.widget.Button;
 import android.widget.Chronometer;
+import android.widget.CompoundButton;
 import android.widget.NumberPicker;
 import android.widget.TextView;
+import android.widget.ToggleButton;
 
 import java.util.concurrent.TimeUnit;
 
+import SudokuLogic.Board;
 import SudokuLogic.Difficulty;
+import SudokuLogic.Game;
+import SudokuLogic.GameStore;
+import SudokuLogic.Geometry;
+import SudokuLogic.GridBoard;
+import SudokuLogic.SavedGame;
 
 public class GameActivity extends AppCompatActivity
 {
     // View variables.
     private Button clearButton;
+    private Button undoButton;
+    private ToggleButton notesButton;
     private TextView bestTimeText;
     private SudokuView sudokuView;
     private Chronometer chronometer;
@@ -31,17 +41,28 @@ public class GameActivity extends AppCompatActivity
     private boolean newBest;                // Indicator of a new best time.
     private long milliseconds;              // Elapsed completion time for puzzle.
     private Difficulty difficulty;          // Difficulty enum of the puzzle.
+    private int boxSize;                    // Size of the sub-grids, 3 for the classic grid.
     private Intent splashActivityIntent;    // Intent from the launching activity.
     private SharedPreferences preferences;  // Preferences object for player data.
+    private GameStore store;                // Saved game and completion times on disk.
+    private boolean finished;               // Indicator that the puzzle has been completed.
 
     // Bundle key string variables.
     public static final String TIME_KEY = "time";
     public static final String SCORE_KEY = "scores";
-    public static final String CURRENT_BOARD_KEY = "board";
-    public static final String ORIGINAL_BOARD_KEY = "original";
+    public static final String BOARD_STATE_KEY = "board";
+    public static final String NOTES_KEY = "notes";
+    public static final String JOURNAL_KEY = "journal";
+    public static final String DIFFICULTY_KEY = "difficulty";
     public static final String EASY_SCORE = "easy";
     public static final String MEDIUM_SCORE = "medium";
     public static final String HARD_SCORE = "hard";
+    public static final String RESUME_KEY = "resume";
+    public static final String PUZZLE_KEY = "puzzle";
+    public static final String BOX_SIZE_KEY = "boxSize";
+    public static final String GRID_PUZZLE_KEY = "gridPuzzle";
+    public static final String GRID_SOLUTION_KEY = "gridSolution";
+    public static final String GRID_CELLS_KEY = "gridCells";
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -55,10 +76,15 @@ public class GameActivity extends AppCompatActivity
 
         // Initialize game state variables.
         newBest = false;
+        finished = false;
         milliseconds = 0;
         preferences = getSharedPreferences(SCORE_KEY, MODE_PRIVATE);
+        store = GameStore.getShared(getFilesDir());
         splashActivityIntent = new Intent(this, SplashActivity.class);
-        difficulty = (Difficulty) getIntent().getSerializableExtra("difficulty");
+        difficulty = (Difficulty) getIntent().getSerializableExtra(DIFFICULTY_KEY);
+        if (savedInstanceState != null && savedInstanceState.containsKey(DIFFICULTY_KEY))
+            difficulty = (Difficulty) savedInstanceState.getSerializable(DIFFICULTY_KEY);
+        boxSize = getIntent().getIntExtra(BOX_SIZE_KEY, Geometry.CLASSIC.getBoxSize());
 
         // Initialize the SudokuView component.
         sudokuView = (SudokuView) findViewById(R.id.sudokuView);
@@ -66,20 +92,46 @@ public class GameActivity extends AppCompatActivity
         // Initialize the Chronometer component.
         chronometer = (Chronometer) findViewById(R.id.chronometer);
         chronometer.setBase(SystemClock.elapsedRealtime());
+
+        // Resume the saved game if requested and one exists, keeping its elapsed time. The splash
+        // screen only offers to resume once the store has read its files.
+        SavedGame saved = store.getSavedGame();
+        if (getIntent().getBooleanExtra(RESUME_KEY, false) && saved != null) {
+            difficulty = saved.getDifficulty();
+            sudokuView.restoreGame(saved.toGame());
+            chronometer.setBase(SystemClock.elapsedRealtime() - saved.getElapsed());
+        }
+        else if (getIntent().hasExtra(PUZZLE_KEY)) {
+            // Start from the board pre-generated by the splash screen, so the first layout
+            // only renders. Without one, the view takes a board when it is first sized.
+            sudokuView.restoreGame(new Game(new Board(getIntent().getLongArrayExtra(PUZZLE_KEY))));
+        }
+
+        // Without a difficulty there is no game to play or score, so go back to choose one.
+        if (difficulty == null) {
+            finished = true;
+            startActivity(splashActivityIntent);
+            finish();
+            return;
+        }
         chronometer.start();
 
         // Initialize the NumberPicker component and add ChangeListener.
         numberPicker = (NumberPicker) findViewById(R.id.numberPicker);
         numberPicker.setMinValue(1);
-        numberPicker.setMaxValue(9);
+        numberPicker.setMaxValue(Geometry.of(boxSize).getSize());
         numberPicker.setWrapSelectorWheel(false);
 
         numberPicker.setOnValueChangedListener(new NumberPicker.OnValueChangeListener() {
             public void onValueChange(NumberPicker picker, int oldVal, int newVal) {
                 sudokuView.onSetCellValue(newVal);
-                if (sudokuView.isComplete()) {
+                if (sudokuView.isComplete() && !finished) {
+                    finished = true;
                     milliseconds = SystemClock.elapsedRealtime() - chronometer.getBase();
-                    checkTime();
+                    if (isClassic()) {
+                        store.clearGame();
+                        checkTime();
+                    }
                     showDialog();
                 }
             }
@@ -93,27 +145,102 @@ public class GameActivity extends AppCompatActivity
             }
         });
 
-        // Initialize the text displaying the player's best time.
+        // Initialize the Notes button, which switches the NumberPicker to pencil marks and,
+        // when held, fills every empty cell with its candidates.
+        notesButton = (ToggleButton) findViewById(R.id.notesButton);
+        notesButton.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            public void onCheckedChanged (CompoundButton button, boolean isChecked) {
+                sudokuView.setNotesMode(isChecked);
+            }
+        });
+        notesButton.setOnLongClickListener(new View.OnLongClickListener() {
+            public boolean onLongClick (View v) {
+                sudokuView.onFillNotes();
+                return true;
+            }
+        });
+
+        // Initialize the Undo button, which redoes the last undone move when held.
+        undoButton = (Button) findViewById(R.id.undoButton);
+        undoButton.setOnClickListener(new View.OnClickListener() {
+            public void onClick (View v) {
+                sudokuView.onUndo();
+            }
+        });
+        undoButton.setOnLongClickListener(new View.OnLongClickListener() {
+            public boolean onLongClick (View v) {
+                sudokuView.onRedo();
+                return true;
+            }
+        });
+
+        // Initialize the text displaying the player's best time once the store has read its files.
+        // Best times kept in the preferences by earlier versions are moved into the store. Only
+        // the classic grid keeps best times and a saved game.
         bestTimeText = (TextView) findViewById(R.id.bestTimeText);
+        if (!isClassic()) {
+            bestTimeText.setText("");
+            return;
+        }
         if (preferences.contains(getScoreKey()))
-            bestTimeText.setText("Best: " + getTimeString(preferences.getLong(getScoreKey(), -1)));
+            store.importBestTime(difficulty, preferences.getLong(getScoreKey(), -1));
+        store.whenLoaded(new Runnable() {
+            public void run () {
+                runOnUiThread(new Runnable() {
+                    public void run () {
+                        showBestTime();
+                    }
+                });
+            }
+        });
+    }
+
+    // Display the best time recorded for the difficulty.
+    private void showBestTime () {
+        long best = store.getBestTime(difficulty);
+        if (best >= 0)
+            bestTimeText.setText("Best: " + getTimeString(best));
         else
             bestTimeText.setText("No best time yet.");
     }
 
+    // Save the unfinished game in the background whenever the player leaves the Activity.
+    @Override
+    protected void onPause () {
+        super.onPause();
+        if (!finished && isClassic() && sudokuView.hasGame() && !sudokuView.isComplete())
+            store.saveGame(new SavedGame(difficulty, SystemClock.elapsedRealtime() - chronometer.getBase(),
+                sudokuView.getState(), sudokuView.getNotes(), sudokuView.getJournal()));
+    }
+
     // Sends the Bundle to save game state before pausing Activity.
     protected void onSaveInstanceState (Bundle outState) {
+        outState.putSerializable(DIFFICULTY_KEY, difficulty);
         outState.putLong(TIME_KEY, SystemClock.elapsedRealtime() - chronometer.getBase());
-        outState.putSerializable(CURRENT_BOARD_KEY, sudokuView.getBoard());
-        outState.putSerializable(ORIGINAL_BOARD_KEY, sudokuView.getOriginalBoard());
+        if (!sudokuView.hasGame())
+            return; // The view generates a board again once it is sized.
+        GridBoard grid = sudokuView.getGridBoard();
+        if (grid != null) {
+            outState.putIntArray(GRID_PUZZLE_KEY, grid.getPuzzleArray());
+            outState.putIntArray(GRID_SOLUTION_KEY, grid.getSolutionArray());
+            outState.putIntArray(GRID_CELLS_KEY, grid.getBoardArray());
+            outState.putIntArray(JOURNAL_KEY, sudokuView.getJournal());
+            return;
+        }
+        outState.putLongArray(BOARD_STATE_KEY, sudokuView.getState());
+        outState.putShortArray(NOTES_KEY, sudokuView.getNotes());
+        outState.putIntArray(JOURNAL_KEY, sudokuView.getJournal());
     }
 
     // Receives the Bundle to restore game state after resuming Activity.
     protected void onRestoreInstanceState (Bundle inState) {
-        int[][] board = (int[][]) inState.getSerializable(CURRENT_BOARD_KEY);
-        int[][] original = (int[][]) inState.getSerializable(ORIGINAL_BOARD_KEY);
-        sudokuView.setBoard(board);
-        sudokuView.setOriginalBoard(original);
+        if (inState.containsKey(GRID_CELLS_KEY))
+            sudokuView.restoreGridGame(boxSize, inState.getIntArray(GRID_PUZZLE_KEY),
+                    inState.getIntArray(GRID_SOLUTION_KEY), inState.getIntArray(GRID_CELLS_KEY),
+                    inState.getIntArray(JOURNAL_KEY));
+        else if (inState.containsKey(BOARD_STATE_KEY))
+            sudokuView.restoreGame(inState.getLongArray(BOARD_STATE_KEY), inState.getShortArray(NOTES_KEY),
+                inState.getIntArray(JOURNAL_KEY));
 
         long initialTime = inState.getLong(TIME_KEY);
         chronometer.stop();
@@ -121,22 +248,9 @@ public class GameActivity extends AppCompatActivity
         chronometer.start();
     }
 
-    // Accesses the SharedPreferences object to update the player's new best time.
+    // Records the completion time, which the GameStore writes off the main thread.
     private void checkTime () {
-        SharedPreferences.Editor editor = preferences.edit();
-
-        if (!preferences.contains(getScoreKey())) {
-            editor.putLong(getScoreKey(), milliseconds);
-            editor.commit();
-            newBest = true;
-        }
-
-        long time = preferences.getLong(getScoreKey(), -1);
-        if (milliseconds < time) {
-            editor.putLong(getScoreKey(), milliseconds);
-            editor.commit();
-            newBest = true;
-        }
+        newBest = store.recordScore(difficulty, milliseconds);
     }
 
     // Display a dialog when the user successfully completes the Sudoku puzzle.
@@ -185,6 +299,16 @@ public class GameActivity extends AppCompatActivity
         numberPicker.setValue(value);
     }
 
+    // Determine if the game is played on the classic 9 by 9 grid.
+    private boolean isClassic () {
+        return boxSize == Geometry.CLASSIC.getBoxSize();
+    }
+
+    // Return the size of the sub-grids of this game's grid.
+    public int getGameBoxSize () {
+        return boxSize;
+    }
+
     // Return the Difficulty value selected for this game.
     public Difficulty getGameDifficulty () {
         return difficulty;
@@ -6,18 +6,26 @@ import android.os.Bundle;
 import android.view.View;
 import android.widget.Button;
 
+import SudokuLogic.Board;
 import SudokuLogic.Difficulty;
+import SudokuLogic.GameStore;
+import SudokuLogic.PuzzleFactory;
+import SudokuLogic.SavedGame;
 
 public class SplashActivity extends AppCompatActivity
 {
     // Button variables.
-    Button easy, medium, hard;
+    Button easy, medium, hard, large, resume;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_splash);
 
+        // Start generating a ready puzzle of each difficulty in the background while the player
+        // chooses one, then keep filling the pool.
+        PuzzleFactory.getShared().refill();
+
         // Add OnClickListener to buttons to start GameActivity with corresponding Difficulty.
         easy = (Button) findViewById(R.id.easyButton);
         easy.setOnClickListener(new View.OnClickListener() {
@@ -39,12 +47,58 @@ public class SplashActivity extends AppCompatActivity
                 startGame(Difficulty.HARD);
             }
         });
+
+        // Start a 16 by 16 puzzle, which the game screen generates in the background.
+        large = (Button) findViewById(R.id.largeButton);
+        large.setOnClickListener(new View.OnClickListener() {
+            public void onClick(View v) {
+                Intent intent = new Intent(SplashActivity.this, GameActivity.class);
+                intent.putExtra("difficulty", Difficulty.MEDIUM);
+                intent.putExtra(GameActivity.BOX_SIZE_KEY, 4);
+                startActivity(intent);
+            }
+        });
+
+        // Offer to resume the game saved when the player last left one unfinished.
+        resume = (Button) findViewById(R.id.resumeButton);
+        resume.setOnClickListener(new View.OnClickListener() {
+            public void onClick(View v) {
+                SavedGame saved = GameStore.getShared(getFilesDir()).getSavedGame();
+                if (saved == null)
+                    return;
+                Intent intent = new Intent(SplashActivity.this, GameActivity.class);
+                intent.putExtra("difficulty", saved.getDifficulty());
+                intent.putExtra(GameActivity.RESUME_KEY, true);
+                startActivity(intent);
+            }
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+
+        // Show the resume button once the store has read its files off the main thread.
+        final GameStore store = GameStore.getShared(getFilesDir());
+        store.whenLoaded(new Runnable() {
+            public void run () {
+                runOnUiThread(new Runnable() {
+                    public void run () {
+                        resume.setVisibility(store.getSavedGame() != null ? View.VISIBLE : View.GONE);
+                    }
+                });
+            }
+        });
     }
 
-    // Start the GameActivity, passing the Difficulty enum value selected.
+    // Start the GameActivity, passing the Difficulty enum value selected and, if one is ready,
+    // a pre-generated board packed into longs. Otherwise the game screen generates its own.
     private void startGame (Difficulty d) {
         Intent intent = new Intent(this, GameActivity.class);
         intent.putExtra("difficulty", d);
+        Board board = PuzzleFactory.getShared().poll(d);
+        if (board != null)
+            intent.putExtra(GameActivity.PUZZLE_KEY, board.getState());
         startActivity(intent);
     }
 }
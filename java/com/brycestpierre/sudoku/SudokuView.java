@@ -1,32 +1,76 @@
 package com.brycestpierre.sudoku;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.PorterDuff;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.MotionEvent;
 import android.view.View;
 
+import SudokuLogic.Board;
+import SudokuLogic.BoardListener;
+import SudokuLogic.ConflictListener;
+import SudokuLogic.Difficulty;
 import SudokuLogic.Game;
+import SudokuLogic.Geometry;
+import SudokuLogic.GridBoard;
+import SudokuLogic.PuzzleFactory;
 
 public class SudokuView extends View
 {
     // String identifier for the logging mechanism.
     private static final String TAG = "SudokuView";
 
+    // Text drawn for each cell value up to the largest grid, built once so that drawing never allocates.
+    private static final String[] DIGITS = new String[Geometry.MAX_BOX_SIZE * Geometry.MAX_BOX_SIZE + 1];
+
+    static {
+        DIGITS[0] = "";
+        for (int i = 1; i < DIGITS.length; i++)
+            DIGITS[i] = Integer.toString(i);
+    }
+
     // Logic variables.
     private Game game;
+    private boolean generating;  // Whether a board is being generated for want of a ready one.
+    private boolean notesMode;   // Whether the NumberPicker edits pencil marks instead of values.
 
     // Layout variables.
+    private int size, boxSize;   // Cells across the grid and across a sub-grid.
     private float unitSize;
     private int viewWidth, viewHeight;
     private int selectedRow, selectedColumn;
 
     // GUI variables.
     private GameActivity activity;
-    private Paint linePaint, enabledTextPaint, disabledTextPaint;
+    private Paint linePaint, selectionPaint, conflictPaint, enabledTextPaint, disabledTextPaint, notePaint;
+    private Bitmap staticLayer; // Grid lines and original cells, redrawn only when the game changes.
+    private Bitmap cellLayer;   // Player's digits, pencil marks and conflicts, redrawn a cell at a time.
+    private Canvas cellCanvas;  // Canvas drawing into the cell layer.
+
+    // Redraws a cell whenever it starts or stops conflicting with another cell.
+    private final ConflictListener conflictListener = new ConflictListener() {
+        public void onConflictChanged (int row, int column, boolean conflicting) {
+            invalidateCell(row, column);
+        }
+    };
+
+    // Starts the game with a board generated in the background, unless one was restored meanwhile.
+    private final BoardListener boardListener = new BoardListener() {
+        public void onBoardReady (final Board board) {
+            post(new Runnable() {
+                public void run () {
+                    generating = false;
+                    if (game == null)
+                        restoreGame(new Game(board));
+                }
+            });
+        }
+    };
 
     // Constructor.
     public SudokuView (Context context, AttributeSet attrs) {
@@ -35,9 +79,62 @@ public class SudokuView extends View
         selectedRow = -1;
         selectedColumn = -1;
 
+        // Configure the paints once rather than on every frame.
         disabledTextPaint = new Paint();
+        disabledTextPaint.setColor(Color.GRAY);
         enabledTextPaint = new Paint();
+        enabledTextPaint.setColor(Color.BLACK);
         linePaint = new Paint();
+        linePaint.setColor(Color.BLACK);
+        selectionPaint = new Paint();
+        selectionPaint.setColor(getResources().getColor(R.color.colorAccent));
+        conflictPaint = new Paint();
+        conflictPaint.setColor(getResources().getColor(R.color.conflict));
+        notePaint = new Paint();
+        notePaint.setColor(Color.DKGRAY);
+        notePaint.setTextAlign(Paint.Align.CENTER);
+    }
+
+    // Replace the current game, highlighting its conflicts as they change.
+    private void setGame (Game g) {
+        game = g;
+        game.setConflictListener(conflictListener);
+        setGeometry(game.getGeometry());
+    }
+
+    // Lay the view out for a grid of the given geometry.
+    private void setGeometry (Geometry geometry) {
+        size = geometry.getSize();
+        boxSize = geometry.getBoxSize();
+        updateTextSizes();
+    }
+
+    // Size the cells and their text to the current grid.
+    private void updateTextSizes () {
+        if (viewWidth <= 0 || size == 0)
+            return;
+        unitSize = viewWidth / size; // Store size of a Sudoku board cell.
+        float textSize = size > 9 ? unitSize * 0.6f : unitSize - (unitSize / 8);
+        enabledTextPaint.setTextSize(textSize);
+        disabledTextPaint.setTextSize(textSize);
+        notePaint.setTextSize(unitSize / (boxSize + 0.5f));
+    }
+
+    // Starts the game with a board of another geometry generated in the background.
+    private void generateGridGame (final Geometry geometry, final Difficulty d) {
+        generating = true;
+        new Thread(new Runnable() {
+            public void run () {
+                final Game g = new Game(new GridBoard(geometry, d));
+                post(new Runnable() {
+                    public void run () {
+                        generating = false;
+                        if (game == null)
+                            restoreGame(g);
+                    }
+                });
+            }
+        }, "GridGenerator").start();
     }
 
     // Called when the view is created.
@@ -45,15 +142,76 @@ public class SudokuView extends View
         super.onSizeChanged(w, h, oldW, oldH);
         viewWidth = w;
         viewHeight = h;
-        unitSize = viewWidth / 9; // Store size of a Sudoku board cell.
 
         // Store reference to the Activity containing this view.
         activity = (GameActivity) getContext();
 
-        // Create new Sudoku game with the selected Difficulty value.
-        game = new Game(activity.getGameDifficulty());
+        // Create new Sudoku game with the selected Difficulty value from the pre-generated pool,
+        // unless a saved game has already been restored. If the pool is empty, or the grid is
+        // not the classic one, the board is generated in the background and the empty grid is
+        // shown until it is ready.
+        Geometry geometry = Geometry.of(activity.getGameBoxSize());
+        if (game == null)
+            setGeometry(geometry);
+        if (game == null && !generating && geometry != Geometry.CLASSIC)
+            generateGridGame(geometry, activity.getGameDifficulty());
+        else if (game == null && !generating) {
+            PuzzleFactory factory = PuzzleFactory.getShared();
+            Board board = factory.poll(activity.getGameDifficulty());
+            if (board != null)
+                setGame(new Game(board));
+            else {
+                generating = true;
+                factory.generate(activity.getGameDifficulty(), boardListener);
+            }
+        }
 
         //Log.d(TAG, game.toSolutionString());
+
+        updateTextSizes();
+        renderStaticLayer();
+        renderCellLayer();
+    }
+
+    // Draw the grid lines and original cells into the cached bitmap layer.
+    private void renderStaticLayer () {
+        if (viewWidth <= 0 || viewHeight <= 0 || size == 0)
+            return;
+
+        if (staticLayer == null || staticLayer.getWidth() != viewWidth || staticLayer.getHeight() != viewHeight) {
+            if (staticLayer != null)
+                staticLayer.recycle();
+            staticLayer = Bitmap.createBitmap(viewWidth, viewHeight, Bitmap.Config.ARGB_8888);
+        }
+        staticLayer.eraseColor(Color.TRANSPARENT);
+        Canvas c = new Canvas(staticLayer);
+
+        // Draw lines.
+        for (int i = 0; i <= size; i++) {
+            linePaint.setStrokeWidth(i % boxSize == 0 ? 7f : 1.5f);
+            c.drawLine(i * unitSize, 0, i * unitSize, size * unitSize, linePaint);
+            c.drawLine(0, i * unitSize, size * unitSize, i * unitSize, linePaint);
+        }
+
+        // Color text grey for original cells, which cannot be changed by the user.
+        if (game == null)
+            return;
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (game.isOriginalCell(i, j))
+                    c.drawText(DIGITS[game.getCell(i, j)], getCellTextX(j), getCellTextY(i), disabledTextPaint);
+            }
+        }
+    }
+
+    // Get the horizontal position of the text in a cell of the given column.
+    private float getCellTextX (int column) {
+        return (column * unitSize) + (unitSize / 4);
+    }
+
+    // Get the vertical position of the text baseline in a cell of the given row.
+    private float getCellTextY (int row) {
+        return ((row + 1) * unitSize) - (unitSize / 8);
     }
 
     // Handles touch event on the Sudoku board.
@@ -64,107 +222,226 @@ public class SudokuView extends View
         return true;
     }
 
-    // Drawing method.
+    // Drawing method, which only composes the cached layers and the selection.
     protected void onDraw (Canvas c) {
-        linePaint.setStrokeWidth(1.5f);
-        linePaint.setColor(Color.BLACK);
-        enabledTextPaint.setColor(Color.BLACK);
-        disabledTextPaint.setColor(Color.GRAY);
-
-        // Draw lines.
-        for (int i = 0; i < 10; i++) {
-            if (i == 0 || i == 9 || i % 3 == 0)
-                linePaint.setStrokeWidth(7f);
-
-            c.drawLine(i * unitSize, 0, i * unitSize, 9 * unitSize, linePaint);
-            c.drawLine(0, i * unitSize, 9 * unitSize, i * unitSize, linePaint);
-
-            if (i == 0 || i == 9 || i % 3 == 0)
-                linePaint.setStrokeWidth(1.5f);
+        if (staticLayer == null)
+            return;
+        if (game == null || cellLayer == null) {
+            c.drawBitmap(staticLayer, 0, 0, null); // Empty grid until the board is generated.
+            return;
         }
 
         // Draw selected Sudoku cell.
-        if (selectedRow != -1 && selectedColumn != -1) {
-            linePaint.setColor(getResources().getColor(R.color.colorAccent));
-
+        if (selectedRow != -1 && selectedColumn != -1 && !game.isOriginalCell(selectedRow, selectedColumn)) {
             float y = selectedRow * unitSize;
             float x = selectedColumn * unitSize;
+            c.drawRect(x, y, x + unitSize, y + unitSize, selectionPaint);
+        }
 
-            if (!game.isOriginalCell(selectedRow, selectedColumn)) {
-                c.drawRect(x, y, x + unitSize, y + unitSize, linePaint);
-                activity.setNumberPicker(game.getCell(selectedRow, selectedColumn));
-            }
+        // Draw the cached player's cells under the grid lines and original cells.
+        c.drawBitmap(cellLayer, 0, 0, null);
+        c.drawBitmap(staticLayer, 0, 0, null);
+    }
+
+    // Draw every cell the player can change into the cached bitmap layer.
+    private void renderCellLayer () {
+        if (viewWidth <= 0 || viewHeight <= 0 || game == null)
+            return;
+
+        if (cellLayer == null || cellLayer.getWidth() != viewWidth || cellLayer.getHeight() != viewHeight) {
+            if (cellLayer != null)
+                cellLayer.recycle();
+            cellLayer = Bitmap.createBitmap(viewWidth, viewHeight, Bitmap.Config.ARGB_8888);
+            cellCanvas = new Canvas(cellLayer);
+        }
+        cellLayer.eraseColor(Color.TRANSPARENT);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++)
+                renderCell(i, j);
         }
+    }
 
-        // Draw Sudoku cell values.
-        enabledTextPaint.setTextSize(unitSize - (unitSize / 8));
-        disabledTextPaint.setTextSize(unitSize - (unitSize / 8));
-        for (int i = 0; i < 9; i++) {
-            for (int j = 0; j < 9; j++) {
-                int cell = game.getCell(i, j);
-                float x = (j * unitSize) + (unitSize / 4);
-                float y = ((i + 1) * unitSize) - (unitSize / 8);
-
-                // Color text black if it can be changed by the user.
-                if (!game.isOriginalCell(i, j)) {
-                    if (cell != 0)
-                        c.drawText(String.valueOf(cell), x, y, enabledTextPaint);
-                }
-                // Color text grey if it cannot be changed by the user.
-                else
-                    c.drawText(String.valueOf(cell), x, y, disabledTextPaint);
-            }
+    // Redraw a particular cell into the cell layer: its conflict highlight, unless the cell is
+    // selected, and then the player's digit or pencil marks.
+    private void renderCell (int row, int column) {
+        float x = column * unitSize;
+        float y = row * unitSize;
+        cellCanvas.save();
+        cellCanvas.clipRect(x, y, x + unitSize, y + unitSize);
+        cellCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+
+        // Highlight cells whose digit is repeated in their row, column or sub-grid, except under
+        // the selection, which is drawn beneath this layer.
+        boolean selected = row == selectedRow && column == selectedColumn && !game.isOriginalCell(row, column);
+        if (game.isConflicting(row, column) && !selected)
+            cellCanvas.drawRect(x, y, x + unitSize, y + unitSize, conflictPaint);
+
+        // Color text black for cells that can be changed by the user.
+        int cell = game.getCell(row, column);
+        if (cell != 0 && !game.isOriginalCell(row, column))
+            cellCanvas.drawText(DIGITS[cell], getCellTextX(column), getCellTextY(row), enabledTextPaint);
+        else if (cell == 0)
+            drawNotes(cellCanvas, row, column, game.getNotes(row, column));
+        cellCanvas.restore();
+    }
+
+    // Draw the pencil marks of a cell, each digit in its own spot of a grid shaped like a sub-grid.
+    private void drawNotes (Canvas c, int row, int column, int notes) {
+        float spot = unitSize / boxSize;
+        for (int digit = 1; notes != 0; digit++, notes >>>= 1) {
+            if ((notes & 1) == 0)
+                continue;
+            float x = (column * unitSize) + (((digit - 1) % boxSize) * spot) + (spot / 2);
+            float y = (row * unitSize) + ((((digit - 1) / boxSize) + 1) * spot) - (spot / 4);
+            c.drawText(DIGITS[digit], x, y, notePaint);
         }
     }
 
     // Select a particular cell via the TouchEvent for this view.
     private void onSelectCell (float x, float y) {
+        if (game == null)
+            return;
+        int oldRow = selectedRow, oldColumn = selectedColumn;
+
         selectedRow = (int) Math.floor(y / unitSize);
         selectedColumn = (int) Math.floor(x / unitSize);
 
-        if (x < 0 || x >= 9 * unitSize || y < 0 || y >= 9 * unitSize) {
+        if (x < 0 || x >= size * unitSize || y < 0 || y >= size * unitSize) {
             selectedRow = -1;
             selectedColumn = -1;
         }
-        invalidate(); // Call onDraw again.
+        else if (!game.isOriginalCell(selectedRow, selectedColumn))
+            activity.setNumberPicker(game.getCell(selectedRow, selectedColumn));
+
+        invalidateCell(oldRow, oldColumn); // Clear the previous selection.
+        invalidateCell(selectedRow, selectedColumn);
     }
 
-    // Set cell value via the NumberPicker control.
+    // Set cell value, or toggle its pencil mark in notes mode, via the NumberPicker control.
     public void onSetCellValue (int value) {
-        if (selectedRow != -1 && selectedColumn != -1) {
+        if (game == null || selectedRow == -1 || selectedColumn == -1)
+            return;
+
+        if (notesMode) {
+            if (value == 0)
+                game.setNotes(selectedRow, selectedColumn, 0);
+            else
+                game.toggleNote(selectedRow, selectedColumn, value);
+            invalidateCell(selectedRow, selectedColumn);
+        }
+        else {
             game.setCell(selectedRow, selectedColumn, value);
-            invalidate();
+            // Pencil marks of the cell's peers may have been removed.
+            if (value != 0 && game.hasNotes())
+                invalidatePeers(selectedRow, selectedColumn);
+            invalidateCell(selectedRow, selectedColumn);
         }
     }
 
-    // Set the two-dimensional array of integers used in the board.
-    public void setBoard (int[][] values) {
-        for (int i = 0; i < 9; i++) {
-            for (int j = 0; j < 9; j++)
-                game.setCell(i, j, values[i][j]);
-        }
+    // Switch the NumberPicker control between editing values and pencil marks.
+    public void setNotesMode (boolean enabled) {
+        notesMode = enabled;
+    }
+
+    // Mark every empty cell with all of its remaining candidates.
+    public void onFillNotes () {
+        if (game == null)
+            return;
+        game.fillNotes();
+        invalidateCells();
     }
 
-    // Set the two-dimensional array of integers used in the original board.
-    public void setOriginalBoard (int[][] values) {
-        for (int i = 0; i < 9; i++) {
-            for (int j = 0; j < 9; j++)
-                game.setOriginalCell(i, j, values[i][j]);
+    // Redraw a particular cell in the cell layer, if one is given, and then the view.
+    private void invalidateCell (int row, int column) {
+        if (row == -1 || column == -1 || cellLayer == null)
+            return;
+
+        renderCell(row, column);
+        invalidate();
+    }
+
+    // Redraw the cells sharing a row, column or sub-grid with a particular cell in the cell layer.
+    private void invalidatePeers (int row, int column) {
+        int boxRow = row - (row % boxSize), boxColumn = column - (column % boxSize);
+        for (int i = 0; i < size; i++) {
+            invalidateCell(row, i);
+            invalidateCell(i, column);
+            invalidateCell(boxRow + (i / boxSize), boxColumn + (i % boxSize));
         }
     }
 
-    // Get the two-dimensional array of integers used in the board.
-    public int[][] getBoard () {
-        return game.getBoardArray();
+    // Redraw every cell in the cell layer, after a change to more than one cell, and then the view.
+    private void invalidateCells () {
+        renderCellLayer();
+        invalidate();
+    }
+
+    // Restore the game from its packed board, pencil marks and move journal.
+    public void restoreGame (long[] state, short[] notes, int[] journal) {
+        Game g = new Game(new Board(state));
+        g.setNotesArray(notes);
+        g.setJournalArray(journal);
+        restoreGame(g);
+    }
+
+    // Restore a game of another geometry from its puzzle, solution, current cells and move journal.
+    public void restoreGridGame (int boxSize, int[] puzzle, int[] solution, int[] cells, int[] journal) {
+        Geometry geometry = Geometry.of(boxSize);
+        GridBoard board = new GridBoard(geometry, puzzle, solution);
+        for (int i = 0; i < cells.length; i++)
+            board.setCell(i / geometry.getSize(), i % geometry.getSize(), cells[i]);
+        Game g = new Game(board);
+        g.setJournalArray(journal);
+        restoreGame(g);
+    }
+
+    // Replace the game with one restored elsewhere, such as from the GameStore.
+    public void restoreGame (Game g) {
+        setGame(g);
+        renderStaticLayer();
+        renderCellLayer();
+        invalidate();
+    }
+
+    // Get the pencil marks of every cell, or null if there are none.
+    public short[] getNotes () {
+        return game.getNotesArray();
     }
 
-    // Get the two-dimensional array of integers used in the original board.
-    public int[][] getOriginalBoard () {
-        return game.getOriginalBoardArray();
+    // Get the game's move journal packed into an array of ints.
+    public int[] getJournal () {
+        return game.getJournalArray();
+    }
+
+    // Revert the last move made by the player.
+    public void onUndo () {
+        if (game != null && game.undo())
+            invalidateCells(); // The move may also have put back pencil marks of the cell's peers.
+    }
+
+    // Reapply the last move reverted by the player.
+    public void onRedo () {
+        if (game != null && game.redo())
+            invalidateCells();
+    }
+
+    // Get the board of a game of another geometry than the classic one, or null if there is none.
+    public GridBoard getGridBoard () {
+        return game == null ? null : game.getGridBoard();
+    }
+
+    // Get the game's packed board, solution and original cells.
+    public long[] getState () {
+        return game.getState();
     }
 
     // Determine if the Sudoku board is complete.
     public boolean isComplete () {
-        return game.isComplete();
+        return game != null && game.isComplete();
+    }
+
+    // Determine if the game has started, which it has not while its board is being generated.
+    public boolean hasGame () {
+        return game != null;
     }
 }
@@ -0,0 +1,64 @@
+package SudokuLogic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+// Checks that canonical forms are invariant under the symmetries of Sudoku and tell
+// different puzzles apart.
+public class CanonicalizerTest
+{
+	private final Canonicalizer canonicalizer = new Canonicalizer();
+
+	// Every transform of a puzzle has the same canonical form and fingerprint.
+	@Test
+	public void invariantUnderSymmetry () {
+		Random random = new Random(18);
+		for (int i = 0; i < 30; i++) {
+			int[] puzzle = Puzzles9.generate(Difficulty.values()[i % 3], i);
+			PackedGrid canonical = canonicalizer.canonicalize(Puzzles9.pack(puzzle));
+			long fingerprint = PuzzleIndex.fingerprint(canonical);
+			for (int k = 0; k < 8; k++) {
+				PackedGrid transformed = Puzzles9.pack(Puzzles9.transform(puzzle, random));
+				assertEquals(canonical, canonicalizer.canonicalize(transformed));
+				assertEquals(fingerprint, canonicalizer.fingerprint(transformed));
+			}
+		}
+	}
+
+	// The canonical form is itself a transform of the puzzle, so it is its own canonical form
+	// and keeps the number of clues.
+	@Test
+	public void canonicalFormIsFixed () {
+		for (int i = 0; i < 20; i++) {
+			PackedGrid puzzle = Puzzles9.pack(Puzzles9.generate(Difficulty.MEDIUM, 100 + i));
+			PackedGrid canonical = canonicalizer.canonicalize(puzzle);
+			assertEquals(puzzle.getFilledCount(), canonical.getFilledCount());
+			assertEquals(canonical, canonicalizer.canonicalize(canonical));
+		}
+	}
+
+	// Puzzles that differ in their clues get different canonical forms.
+	@Test
+	public void separatesDifferentPuzzles () {
+		Set<PackedGrid> forms = new HashSet<PackedGrid>();
+		for (int i = 0; i < 40; i++)
+			assertTrue(forms.add(canonicalizer.canonicalize(Puzzles9.pack(Puzzles9.generate(Difficulty.HARD, 200 + i)))));
+
+		int[] puzzle = Puzzles9.generate(Difficulty.EASY, 7);
+		int[] changed = puzzle.clone();
+		for (int i = 0; i < 81; i++) {
+			if (changed[i] != 0) {
+				changed[i] = 0;
+				break;
+			}
+		}
+		assertNotEquals(canonicalizer.fingerprint(Puzzles9.pack(puzzle)), canonicalizer.fingerprint(Puzzles9.pack(changed)));
+	}
+}
@@ -0,0 +1,59 @@
+package SudokuLogic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+// Checks that the generator for grids of any size builds valid puzzles whose clue counts
+// follow the difficulties.
+public class GridGeneratorTest
+{
+	// Each generated solution is complete and valid.
+	@Test
+	public void solutionsAreValid () {
+		for (int k = Geometry.MIN_BOX_SIZE; k <= Geometry.MAX_BOX_SIZE; k++) {
+			Geometry geometry = Geometry.of(k);
+			GridGenerator generator = new GridGenerator(geometry, new Random(k));
+			GridSolver solver = new GridSolver(geometry);
+			int[] grid = new int[geometry.cellCount];
+			for (int i = 0; i < 5; i++) {
+				generator.generateSolution(grid);
+				for (int value : grid)
+					assertTrue(value >= 1 && value <= geometry.size);
+				assertEquals(1, solver.countSolutions(grid, 2));
+			}
+		}
+	}
+
+	// On every size, EASY keeps more clues than MEDIUM and MEDIUM more than HARD, and every
+	// puzzle has its solution as the only one.
+	@Test
+	public void cluesFallWithDifficulty () {
+		for (int k = Geometry.MIN_BOX_SIZE; k <= Geometry.MAX_BOX_SIZE; k++) {
+			Geometry geometry = Geometry.of(k);
+			GridSolver solver = new GridSolver(geometry);
+			int samples = k < Geometry.MAX_BOX_SIZE ? 4 : 1;
+			int previous = Integer.MAX_VALUE;
+			for (Difficulty d : Difficulty.values()) {
+				int total = 0;
+				for (int i = 0; i < samples; i++) {
+					GridGenerator generator = new GridGenerator(geometry, new Random(i));
+					int[] solution = new int[geometry.cellCount];
+					generator.generateSolution(solution);
+					int[] puzzle = solution.clone();
+					total += generator.hideCells(puzzle, d);
+
+					assertEquals(1, solver.countSolutions(puzzle.clone(), 2));
+					assertTrue(solver.solve(puzzle));
+					assertArrayEquals(solution, puzzle);
+				}
+				assertTrue(k + " " + d + ": " + total + " clues after " + previous, total < previous);
+				previous = total;
+			}
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package SudokuLogic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+// Checks undo and redo of a Game against snapshots of its cells and pencil marks taken after
+// each move, including the marks a placed digit clears, a journal restored from its array
+// a ring that has forgotten its oldest moves and the moves of larger grids.
+public class MoveJournalTest
+{
+	// Undoing every move walks back through the snapshots and redoing walks forward again.
+	@Test
+	public void undoAndRedoRestoreCellsAndNotes () {
+		Random random = new Random(14);
+		for (int round = 0; round < 10; round++) {
+			Game game = new Game(new Board(Difficulty.MEDIUM, round));
+			game.fillNotes();
+			List<int[]> cells = new ArrayList<int[]>();
+			List<short[]> notes = new ArrayList<short[]>();
+			cells.add(snapshot(game));
+			notes.add(game.getNotesArray());
+
+			for (int move = 0; move < 40; move++) {
+				int cell = random.nextInt(81);
+				if (game.isOriginalCell(cell / 9, cell % 9))
+					continue;
+				int value = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(9);
+				if (value == game.getCell(cell / 9, cell % 9))
+					continue;
+				game.setCell(cell / 9, cell % 9, value);
+				cells.add(snapshot(game));
+				notes.add(game.getNotesArray());
+			}
+
+			// Continue from a journal restored from its array half of the time.
+			if (round % 2 == 1)
+				game.setJournalArray(game.getJournalArray());
+
+			for (int i = cells.size() - 2; i >= 0; i--) {
+				assertTrue(game.undo());
+				assertArrayEquals(cells.get(i), snapshot(game));
+				assertArrayEquals(notes.get(i), game.getNotesArray());
+			}
+			assertFalse(game.undo());
+
+			for (int i = 1; i < cells.size(); i++) {
+				assertTrue(game.redo());
+				assertArrayEquals(cells.get(i), snapshot(game));
+				assertArrayEquals(notes.get(i), game.getNotesArray());
+			}
+			assertFalse(game.redo());
+		}
+	}
+
+	// A new move after undoing discards the moves that were undone.
+	@Test
+	public void recordingDiscardsRedo () {
+		MoveJournal journal = new MoveJournal();
+		journal.record(0, 0, 1, 0x1FF, 0xF);
+		journal.record(1, 0, 2);
+		journal.undo();
+		assertTrue(journal.canRedo());
+		journal.record(2, 0, 3);
+		assertFalse(journal.canRedo());
+		assertEquals(2, MoveJournal.getCell(journal.undo()));
+		assertEquals(0, journal.getUndoneNotes());
+		assertEquals(0, MoveJournal.getCell(journal.undo()));
+		assertEquals(0x1FF, MoveJournal.getCellNotes(journal.getUndoneNotes()));
+		assertEquals(0xF, MoveJournal.getPeerNotes(journal.getUndoneNotes()));
+		assertFalse(journal.canUndo());
+	}
+
+	// A full ring forgets whole moves with their side entries, so undo never returns a side entry.
+	@Test
+	public void fullRingForgetsWholeMoves () {
+		MoveJournal journal = new MoveJournal(16);
+		for (int i = 0; i < 100; i++)
+			journal.record(i % 81, 0, 1 + (i % 9), i % 3 == 0 ? 0 : 1 << (i % 9), i % 5);
+
+		int undone = 0;
+		int last = 99;
+		while (journal.canUndo()) {
+			int move = journal.undo();
+			assertFalse(MoveJournal.isNotes(move));
+			assertEquals(last % 81, MoveJournal.getCell(move));
+			last--;
+			undone++;
+		}
+		assertTrue(undone > 0 && undone <= 16);
+	}
+
+	// Moves on a 25 by 25 grid keep their cell and digits, and classic moves pack as before.
+	@Test
+	public void largeGridMovesRoundTrip () {
+		for (int cell = 0; cell < 625; cell += 7) {
+			int move = MoveJournal.encode(cell, cell % 26, 25 - (cell % 26));
+			assertFalse(MoveJournal.isNotes(move));
+			assertEquals(cell, MoveJournal.getCell(move));
+			assertEquals(cell % 26, MoveJournal.getOldValue(move));
+			assertEquals(25 - (cell % 26), MoveJournal.getNewValue(move));
+		}
+		assertEquals(80 | (9 << 7) | (1 << 11), MoveJournal.encode(80, 9, 1));
+	}
+
+	// Undoing every move of a 16 by 16 game walks back through the snapshots of its cells and
+	// redoing walks forward again.
+	@Test
+	public void undoAndRedoOnLargeGrid () {
+		Random random = new Random(16);
+		Geometry geometry = Geometry.of(4);
+		Game game = new Game(new GridBoard(geometry, Difficulty.EASY, new Random(16)));
+		List<int[]> cells = new ArrayList<int[]>();
+		cells.add(game.getGridBoard().getBoardArray());
+		for (int move = 0; move < 60; move++) {
+			int cell = random.nextInt(geometry.cellCount);
+			int row = cell / 16, column = cell % 16;
+			int value = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(16);
+			if (game.isOriginalCell(row, column) || value == game.getCell(row, column))
+				continue;
+			game.setCell(row, column, value);
+			cells.add(game.getGridBoard().getBoardArray());
+		}
+
+		for (int i = cells.size() - 2; i >= 0; i--) {
+			assertTrue(game.undo());
+			assertArrayEquals(cells.get(i), game.getGridBoard().getBoardArray());
+		}
+		assertFalse(game.undo());
+		for (int i = 1; i < cells.size(); i++) {
+			assertTrue(game.redo());
+			assertArrayEquals(cells.get(i), game.getGridBoard().getBoardArray());
+		}
+	}
+
+	// Get the cells of a game row by row.
+	private static int[] snapshot (Game game) {
+		int[] cells = new int[81];
+		for (int i = 0; i < 81; i++)
+			cells[i] = game.getCell(i / 9, i % 9);
+		return cells;
+	}
+}
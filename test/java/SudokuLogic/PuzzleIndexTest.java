@@ -0,0 +1,35 @@
+package SudokuLogic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+// Checks that the index keeps every fingerprint while it grows far past its expected size.
+public class PuzzleIndexTest
+{
+	// Every fingerprint added stays present and is rejected when added again.
+	@Test
+	public void keepsEntriesWhileGrowing () {
+		PuzzleIndex index = new PuzzleIndex(4);
+		long before = index.getMemoryUsage();
+		Random random = new Random(18);
+		long[] added = new long[20000];
+		for (int i = 0; i < added.length; i++) {
+			added[i] = random.nextLong();
+			assertTrue(index.add(added[i]));
+		}
+		assertEquals(added.length, index.size());
+		assertTrue(index.getMemoryUsage() > before);
+
+		for (long fingerprint : added) {
+			assertTrue(index.contains(fingerprint));
+			assertFalse(index.add(fingerprint));
+		}
+		assertEquals(added.length, index.size());
+		assertFalse(index.contains(random.nextLong()));
+	}
+}
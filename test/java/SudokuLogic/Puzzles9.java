@@ -0,0 +1,71 @@
+package SudokuLogic;
+
+import java.util.Random;
+
+// Puzzles and symmetry transforms shared by the property checks.
+final class Puzzles9
+{
+	private Puzzles9 () {}
+
+	// Generate the clues of a puzzle of a difficulty from a seed, row by row.
+	static int[] generate (Difficulty d, long seed) {
+		int[] cells = new int[81];
+		new Board(d, seed).getPuzzle().toArray(cells);
+		return cells;
+	}
+
+	// Apply a random symmetry that preserves Sudoku: an optional transposition, permutations
+	// of the bands, stacks and the rows and columns within them, and a relabeling of the digits.
+	static int[] transform (int[] cells, Random random) {
+		int[] rows = lineOrder(random);
+		int[] columns = lineOrder(random);
+		int[] labels = new int[10];
+		int[] digits = permutation(9, random);
+		for (int i = 0; i < 9; i++)
+			labels[i + 1] = digits[i] + 1;
+		boolean transpose = random.nextBoolean();
+
+		int[] result = new int[81];
+		for (int r = 0; r < 9; r++) {
+			for (int c = 0; c < 9; c++) {
+				int source = transpose ? (columns[c] * 9) + rows[r] : (rows[r] * 9) + columns[c];
+				result[(r * 9) + c] = labels[cells[source]];
+			}
+		}
+		return result;
+	}
+
+	// Get a random order of the nine rows or columns that keeps each band or stack together.
+	private static int[] lineOrder (Random random) {
+		int[] bands = permutation(3, random);
+		int[] order = new int[9];
+		for (int b = 0; b < 3; b++) {
+			int[] lines = permutation(3, random);
+			for (int i = 0; i < 3; i++)
+				order[(b * 3) + i] = (bands[b] * 3) + lines[i];
+		}
+		return order;
+	}
+
+	// Get a random permutation of 0 to n - 1.
+	private static int[] permutation (int n, Random random) {
+		int[] values = new int[n];
+		for (int i = 0; i < n; i++)
+			values[i] = i;
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int t = values[i];
+			values[i] = values[j];
+			values[j] = t;
+		}
+		return values;
+	}
+
+	// Pack an array of 81 cells into a grid.
+	static PackedGrid pack (int[] cells) {
+		PackedGrid grid = new PackedGrid();
+		for (int i = 0; i < 81; i++)
+			grid.set(i, cells[i]);
+		return grid;
+	}
+}
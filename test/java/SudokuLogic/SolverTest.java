@@ -0,0 +1,118 @@
+package SudokuLogic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+// Checks the singles-propagating Solver against a plain backtracking count on generated
+// puzzles, on the same puzzles with clues removed so they have several solutions, and on
+// puzzles with clues added at random so that most have none.
+public class SolverTest
+{
+	private static final int LIMIT = 3;
+
+	private final Solver solver = new Solver();
+
+	// Generated puzzles have exactly one solution, which solve() finds and which keeps the clues.
+	@Test
+	public void solvesGeneratedPuzzles () {
+		for (int i = 0; i < 60; i++) {
+			int[] puzzle = Puzzles9.generate(Difficulty.values()[i % 3], i);
+			int[] cells = puzzle.clone();
+			assertTrue(solver.solve(cells));
+			assertValidSolution(puzzle, cells);
+			assertEquals(1, solver.countSolutions(puzzle, LIMIT));
+			assertEquals(1, bruteForce(puzzle.clone(), 0, LIMIT));
+		}
+	}
+
+	// Counts up to the limit agree with brute force on puzzles with too few or too many clues.
+	@Test
+	public void countsMatchBruteForce () {
+		Random random = new Random(18);
+		for (int i = 0; i < 200; i++) {
+			int[] puzzle = Puzzles9.generate(Difficulty.EASY, 1000 + i);
+			if (i % 2 == 0) {
+				for (int k = 0; k < 6; k++)
+					puzzle[random.nextInt(81)] = 0;
+			}
+			else {
+				for (int k = 0; k < 3; k++)
+					puzzle[random.nextInt(81)] = 1 + random.nextInt(9);
+			}
+
+			int expected = bruteForce(puzzle.clone(), 0, LIMIT);
+			assertEquals("Puzzle " + i, expected, solver.countSolutions(puzzle, LIMIT));
+
+			int[] cells = puzzle.clone();
+			assertEquals(expected > 0, solver.solve(cells));
+			if (expected > 0)
+				assertValidSolution(puzzle, cells);
+		}
+	}
+
+	// Givens that already repeat a digit leave no solution.
+	@Test
+	public void rejectsConflictingGivens () {
+		int[] puzzle = new int[81];
+		puzzle[0] = 5;
+		puzzle[80] = 5;
+		puzzle[8] = 5;
+		assertEquals(0, solver.countSolutions(puzzle, LIMIT));
+	}
+
+	// Fail unless a grid is full, breaks no rule and keeps every clue.
+	private static void assertValidSolution (int[] puzzle, int[] cells) {
+		for (int i = 0; i < 81; i++) {
+			assertTrue(cells[i] >= 1 && cells[i] <= 9);
+			if (puzzle[i] != 0)
+				assertEquals(puzzle[i], cells[i]);
+		}
+		for (int[] unit : LogicalSolver.UNITS) {
+			int seen = 0;
+			for (int cell : unit)
+				seen |= 1 << (cells[cell] - 1);
+			assertEquals(Constraints.ALL_DIGITS, seen);
+		}
+	}
+
+	// Count solutions up to a limit by trying every digit in every empty cell in order.
+	private static int bruteForce (int[] cells, int from, int limit) {
+		for (int i = 0; i < 81; i++) {
+			if (cells[i] != 0 && !fits(cells, i, cells[i]))
+				return 0;
+		}
+		return search(cells, from, limit);
+	}
+
+	// Fill the empty cells from a cell onwards, counting the solutions found up to a limit.
+	private static int search (int[] cells, int from, int limit) {
+		int cell = from;
+		while (cell < 81 && cells[cell] != 0)
+			cell++;
+		if (cell == 81)
+			return 1;
+
+		int count = 0;
+		for (int digit = 1; digit <= 9 && count < limit; digit++) {
+			if (fits(cells, cell, digit)) {
+				cells[cell] = digit;
+				count += search(cells, cell + 1, limit - count);
+				cells[cell] = 0;
+			}
+		}
+		return count;
+	}
+
+	// Determine if a digit repeats none of the other digits of a cell's row, column and sub-grid.
+	private static boolean fits (int[] cells, int cell, int digit) {
+		for (int peer : LogicalSolver.PEERS[cell]) {
+			if (cells[peer] == digit)
+				return false;
+		}
+		return true;
+	}
+}
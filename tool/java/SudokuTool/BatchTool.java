@@ -0,0 +1,349 @@
+package SudokuTool;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+
+import SudokuLogic.Board;
+import SudokuLogic.Difficulty;
+import SudokuLogic.GridFormat;
+import SudokuLogic.LogicalSolver;
+import SudokuLogic.PackedGrid;
+import SudokuLogic.Solver;
+import SudokuLogic.Technique;
+
+// Headless command-line tool for batches of puzzles in the 81-character line format:
+//
+//   generate <difficulty> <count> [output]	write new puzzles of a difficulty
+//   solve [input [output]]					write the solution of each puzzle
+//   grade [input [output]]					write each puzzle with its grade, score and hardest technique
+//
+// Files default to standard input and output, also selected by "-", and "-j <threads>"
+// before the command sets the number of workers, one per core by default. Lines are read
+// in chunks by the calling thread and each chunk is handled by a worker, while finished
+// chunks are written in the order they were read, so the output lines up with the input.
+// The number of chunks in flight is bounded, so memory stays flat however long the input.
+// Lines that are blank or start with '#' are skipped, and anything after the 81 cells of
+// a line is ignored. Puzzles that cannot be handled are passed through with a reason and
+// counted as failures, and throughput is reported on standard error at the end.
+public class BatchTool
+{
+	private static final int CHUNK_LINES = 1024;		// Puzzles handled by a single task.
+	private static final int CHUNKS_PER_THREAD = 4;		// Chunks in flight for each worker.
+	private static final int BUFFER_SIZE = 1 << 16;		// Characters buffered for reading and writing.
+
+	private static final String USAGE = "Usage: BatchTool [-j threads] generate <EASY|MEDIUM|HARD> <count> [output]\n"
+		+ "       BatchTool [-j threads] solve [input [output]]\n"
+		+ "       BatchTool [-j threads] grade [input [output]]";
+
+	// Solvers of each worker thread, created on first use.
+	private static final ThreadLocal<Worker> WORKER = new ThreadLocal<Worker>() {
+		protected Worker initialValue () {
+			return new Worker();
+		}
+	};
+
+	private final int threads;
+	private final ExecutorService workers;
+	private final ArrayDeque<Future<Chunk>> pending;	// Chunks in flight, in the order they were read.
+	private Writer out;
+	private long count;		// Puzzles written so far.
+	private long failed;	// Puzzles that could not be handled.
+
+	// Constructor with the number of worker threads.
+	public BatchTool (int threads) {
+		this.threads = threads;
+		workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			public Thread newThread (Runnable r) {
+				Thread thread = new Thread(r, "BatchTool");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		pending = new ArrayDeque<Future<Chunk>>();
+	}
+
+	public static void main (String[] args) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		int first = 0;
+		try {
+			if (args.length >= 2 && args[0].equals("-j")) {
+				threads = Integer.parseInt(args[1]);
+				if (threads < 1)
+					throw new NumberFormatException();
+				first = 2;
+			}
+		} catch (NumberFormatException e) {
+			usage("Invalid number of threads: " + args[1]);
+		}
+		if (args.length <= first)
+			usage(null);
+
+		String command = args[first];
+		String[] rest = new String[args.length - first - 1];
+		System.arraycopy(args, first + 1, rest, 0, rest.length);
+
+		BatchTool tool = new BatchTool(threads);
+		try {
+			long start = System.nanoTime();
+			if (command.equals("generate")) {
+				if (rest.length < 2 || rest.length > 3)
+					usage(null);
+				Difficulty d = null;
+				int n = -1;
+				try {
+					d = Difficulty.valueOf(rest[0].toUpperCase(Locale.ROOT));
+					n = Integer.parseInt(rest[1]);
+				} catch (IllegalArgumentException e) {
+					// Reported below.
+				}
+				if (d == null || n < 0)
+					usage("Invalid difficulty or count: " + rest[0] + " " + rest[1]);
+				tool.generate(d, n, openOutput(rest.length > 2 ? rest[2] : "-"));
+			}
+			else if (command.equals("solve") || command.equals("grade")) {
+				if (rest.length > 2)
+					usage(null);
+				Task task = command.equals("solve") ? Task.SOLVE : Task.GRADE;
+				tool.process(task, openInput(rest.length > 0 ? rest[0] : "-"),
+					openOutput(rest.length > 1 ? rest[1] : "-"));
+			}
+			else
+				usage("Unknown command: " + command);
+			tool.printStats(command, System.nanoTime() - start);
+		} catch (IOException e) {
+			System.err.println("BatchTool: " + e.getMessage());
+			System.exit(1);
+		} finally {
+			tool.shutdown();
+		}
+		if (tool.failed > 0)
+			System.exit(1);
+	}
+
+	// Print an optional message and the usage, then exit.
+	private static void usage (String message) {
+		if (message != null)
+			System.err.println(message);
+		System.err.println(USAGE);
+		System.exit(2);
+	}
+
+	// Open a file for reading, or standard input for "-".
+	private static InputStream openInput (String name) throws IOException {
+		return name.equals("-") ? System.in : new FileInputStream(name);
+	}
+
+	// Open a file for writing, or standard output for "-".
+	private static OutputStream openOutput (String name) throws IOException {
+		return name.equals("-") ? System.out : new FileOutputStream(name);
+	}
+
+	// Generate puzzles of a difficulty, one per line, closing the output when done.
+	public void generate (final Difficulty d, long total, OutputStream output) throws IOException {
+		start(output);
+		try {
+			for (long done = 0; done < total; done += CHUNK_LINES) {
+				final int n = (int) Math.min(CHUNK_LINES, total - done);
+				submit(new Callable<Chunk>() {
+					public Chunk call () throws IOException {
+						Chunk chunk = new Chunk(n * (GridFormat.LINE_LENGTH + 1));
+						for (int i = 0; i < n; i++) {
+							GridFormat.writeLine(new Board(d, ThreadLocalRandom.current()).getPuzzle(), chunk.text);
+							chunk.text.append('\n');
+						}
+						chunk.count = n;
+						return chunk;
+					}
+				});
+			}
+			drain(0);
+		} finally {
+			out.close();
+		}
+	}
+
+	// Solve or grade every puzzle of the input in parallel, writing the results in input order
+	// and closing both streams when done.
+	public void process (final Task task, InputStream input, OutputStream output) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(input, StandardCharsets.US_ASCII), BUFFER_SIZE);
+		start(output);
+		try {
+			long lineNumber = 0;
+			while (true) {
+				final String[] lines = new String[CHUNK_LINES];
+				final long[] numbers = new long[CHUNK_LINES];	// Input line number of each puzzle.
+				int n = 0;
+				String line;
+				while (n < CHUNK_LINES && (line = in.readLine()) != null) {
+					lineNumber++;
+					if (line.length() > 0 && line.charAt(0) != '#') {
+						numbers[n] = lineNumber;
+						lines[n++] = line;
+					}
+				}
+				if (n == 0)
+					break;
+
+				final int size = n;
+				submit(new Callable<Chunk>() {
+					public Chunk call () throws IOException {
+						Chunk chunk = new Chunk(size * (GridFormat.LINE_LENGTH + 32));
+						Worker worker = WORKER.get();
+						for (int i = 0; i < size; i++) {
+							try {
+								if (!worker.handle(task, lines[i], chunk.text))
+									chunk.failed++;
+							} catch (RuntimeException e) {
+								throw new IOException("Failed on line " + numbers[i] + ": " + lines[i] + ": " + e, e);
+							}
+						}
+						chunk.count = size;
+						return chunk;
+					}
+				});
+			}
+			drain(0);
+		} finally {
+			in.close();
+			out.close();
+		}
+	}
+
+	// Begin writing a batch to an output.
+	private void start (OutputStream output) {
+		out = new OutputStreamWriter(output, StandardCharsets.US_ASCII);
+		count = 0;
+		failed = 0;
+	}
+
+	// Queue a chunk for a worker, first writing finished chunks if too many are in flight.
+	private void submit (Callable<Chunk> task) throws IOException {
+		drain((threads * CHUNKS_PER_THREAD) - 1);
+		pending.add(workers.submit(task));
+	}
+
+	// Write chunks in order, waiting for each, until no more than the given number are in flight.
+	// A chunk whose worker failed is reported as an IOException naming the input line, if any.
+	private void drain (int limit) throws IOException {
+		while (pending.size() > limit) {
+			Chunk chunk;
+			try {
+				chunk = pending.poll().get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted.");
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException)
+					throw (IOException) e.getCause();
+				throw new IOException("Worker failed: " + e.getCause(), e.getCause());
+			}
+
+			out.append(chunk.text);
+			count += chunk.count;
+			failed += chunk.failed;
+		}
+		if (limit == 0)
+			out.flush();
+	}
+
+	// Print the number of puzzles handled and the throughput on standard error.
+	public void printStats (String command, long nanos) {
+		double seconds = nanos / 1e9;
+		System.err.printf("%s: %d puzzles in %.3f s (%.0f puzzles/s) on %d threads, %d failed%n",
+			command, count, seconds, count / Math.max(seconds, 1e-9), threads, failed);
+	}
+
+	// Get the number of puzzles written by the last batch.
+	public long getCount () {
+		return count;
+	}
+
+	// Get the number of puzzles the last batch could not handle.
+	public long getFailedCount () {
+		return failed;
+	}
+
+	// Stop the worker threads.
+	public void shutdown () {
+		workers.shutdown();
+	}
+
+	// What to do with each puzzle read.
+	public enum Task {
+		SOLVE, GRADE
+	}
+
+	// Output of a chunk of puzzles.
+	private static class Chunk
+	{
+		final StringBuilder text;
+		int count;
+		int failed;
+
+		// Constructor.
+		Chunk (int capacity) {
+			text = new StringBuilder(capacity);
+		}
+	}
+
+	// Solvers and scratch grids of a worker thread.
+	private static class Worker
+	{
+		private final Solver solver = new Solver();
+		private final LogicalSolver logical = new LogicalSolver();
+		private final PackedGrid puzzle = new PackedGrid();
+		private final int[] cells = new int[81];
+
+		// Handle one line, appending the result, and return false if the puzzle could not be handled.
+		boolean handle (Task task, String line, StringBuilder out) {
+			try {
+				GridFormat.readLine(line, 0, puzzle);
+			} catch (IllegalArgumentException e) {
+				out.append(line).append(" # invalid\n");
+				return false;
+			}
+			puzzle.toArray(cells);
+			int solutions = solver.countSolutions(cells, 2);
+
+			if (task == Task.SOLVE) {
+				if (solutions == 0) {
+					out.append(line, 0, GridFormat.LINE_LENGTH).append(" # no solution\n");
+					return false;
+				}
+				solver.getSolution(cells);
+				for (int value : cells)
+					out.append((char) ('0' + value));
+				out.append(solutions > 1 ? " # not unique\n" : "\n");
+				return true;
+			}
+
+			out.append(line, 0, GridFormat.LINE_LENGTH).append(' ');
+			if (solutions != 1) {
+				out.append(solutions == 0 ? "UNSOLVABLE\n" : "AMBIGUOUS\n");
+				return false;
+			}
+			logical.solve(puzzle);
+			Technique hardest = logical.getHardestTechnique();
+			out.append(logical.grade()).append(' ').append(logical.getScore()).append(' ')
+				.append(hardest == null ? "NONE" : hardest.name()).append('\n');
+			return true;
+		}
+	}
+}